@@ -0,0 +1,30 @@
+/**
+ * The checkered board stored as a CheckeredBoard, created without a dialog
+ * box (so past MAXIMUM_NUMBER_OF_GRID_ROWS as well). Boards with more rows
+ * than pixels have squares of one pixel and are larger than the window.
+ */
+public class CheckeredBoardWorkload implements bench.Workload {
+
+	private GraphicsElements elements = new GraphicsElements();
+
+	private int rows;
+
+	private CheckeredBoard board;
+
+	public void setUp(int size, int threads) {
+		this.rows = size;
+		this.board = (CheckeredBoard) create();
+	}
+
+	public Object create() {
+		return this.elements.createACheckeredBoardGrid(this.rows);
+	}
+
+	public Object transform() {
+		return this.elements.flipColorsInCheckeredBoard(this.board);
+	}
+
+	public Object hitTest(int x, int y) {
+		return this.elements.getColorInCheckeredBoard(x, y, this.board);
+	}
+}
@@ -0,0 +1,30 @@
+/**
+ * The pile of disks stored as a DiskPile, created without a dialog box (so
+ * past MAXIMUM_NUMBER_OF_PILE_DISKS as well, up to
+ * IndexedRaster.MAXIMUM_NUMBER_OF_SLOTS)
+ */
+public class DiskPileWorkload implements bench.Workload {
+
+	private GraphicsElements elements = new GraphicsElements();
+
+	private int disks;
+
+	private DiskPile pile;
+
+	public void setUp(int size, int threads) {
+		this.disks = size;
+		this.pile = (DiskPile) create();
+	}
+
+	public Object create() {
+		return this.elements.createADiskPile(this.disks, 42L);
+	}
+
+	public Object transform() {
+		return this.elements.rotateColorsInPileOfDisks(this.pile);
+	}
+
+	public Object hitTest(int x, int y) {
+		return this.elements.getColorInPileOfDisks(x, y, this.pile);
+	}
+}
@@ -0,0 +1,34 @@
+import java.util.ArrayList;
+
+import uwcse.graphics.Rectangle;
+
+/**
+ * The board stored as an ArrayList of Rectangles, created without a dialog
+ * box (so past MAXIMUM_NUMBER_OF_ROWS as well)
+ */
+public class ListCheckeredBoardWorkload implements bench.Workload {
+
+	private GraphicsElements elements = new GraphicsElements();
+
+	private int rows;
+
+	private ArrayList<Rectangle> board;
+
+	@SuppressWarnings("unchecked")
+	public void setUp(int size, int threads) {
+		this.rows = size;
+		this.board = (ArrayList<Rectangle>) create();
+	}
+
+	public Object create() {
+		return this.elements.createACheckeredBoard(this.rows);
+	}
+
+	public Object transform() {
+		return this.elements.flipColorsInCheckeredBoard(this.board);
+	}
+
+	public Object hitTest(int x, int y) {
+		return this.elements.getColorInCheckeredBoard(x, y, this.board);
+	}
+}
@@ -0,0 +1,33 @@
+import java.util.ArrayList;
+
+import uwcse.graphics.Oval;
+
+/**
+ * The pile of disks stored as an ArrayList of Ovals, created without a dialog
+ * box (so past MAXIMUM_NUMBER_OF_DISKS as well)
+ */
+public class ListDiskPileWorkload implements bench.Workload {
+
+	private GraphicsElements elements = new GraphicsElements();
+
+	private int disks;
+
+	private ArrayList<Oval> pile;
+
+	public void setUp(int size, int threads) {
+		this.disks = size;
+		this.pile = create();
+	}
+
+	public ArrayList<Oval> create() {
+		return this.elements.createAPileOfDisks(this.disks);
+	}
+
+	public Object transform() {
+		return this.elements.rotateColorsInPileOfDisks(this.pile);
+	}
+
+	public Object hitTest(int x, int y) {
+		return this.elements.getColorInPileOfDisks(x, y, this.pile);
+	}
+}
@@ -0,0 +1,33 @@
+import java.util.ArrayList;
+
+import uwcse.graphics.Oval;
+
+/**
+ * The Sierpinski triangle stored as an ArrayList of Ovals, created without a
+ * dialog box (so past MAXIMUM_NUMBER_OF_POINTS as well)
+ */
+public class ListSierpinskiWorkload implements bench.Workload {
+
+	private GraphicsElements elements = new GraphicsElements();
+
+	private int points;
+
+	private ArrayList<Oval> triangle;
+
+	public void setUp(int size, int threads) {
+		this.points = size;
+		this.triangle = create();
+	}
+
+	public ArrayList<Oval> create() {
+		return this.elements.createASierpinskiTriangle(this.points, 42L);
+	}
+
+	public Object transform() {
+		return this.elements.changeColorsInSierpinskiTriangle(this.triangle);
+	}
+
+	public Object hitTest(int x, int y) {
+		return this.elements.getColorInSierpinskiTriangle(x, y, this.triangle);
+	}
+}
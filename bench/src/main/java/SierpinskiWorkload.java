@@ -0,0 +1,30 @@
+/** The Sierpinski triangle stored as a SierpinskiPoints */
+public class SierpinskiWorkload implements bench.Workload {
+
+	private GraphicsElements elements = new GraphicsElements();
+
+	private int points;
+
+	private int threads;
+
+	private SierpinskiPoints triangle;
+
+	public void setUp(int size, int threads) {
+		this.points = size;
+		this.threads = threads;
+		this.triangle = (SierpinskiPoints) create();
+	}
+
+	public Object create() {
+		return this.elements.createASierpinskiPointCloud(this.points, 42L,
+				this.threads);
+	}
+
+	public Object transform() {
+		return this.elements.changeColorsInSierpinskiTriangle(this.triangle);
+	}
+
+	public Object hitTest(int x, int y) {
+		return this.elements.getColorInSierpinskiTriangle(x, y, this.triangle);
+	}
+}
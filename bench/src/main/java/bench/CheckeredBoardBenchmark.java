@@ -0,0 +1,19 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * createACheckeredBoardGrid, flipColorsInCheckeredBoard and
+ * getColorInCheckeredBoard on boards of up to 10,000 x 10,000 squares
+ */
+public class CheckeredBoardBenchmark extends PatternBenchmark {
+
+	@Param({ "50", "300", "10000" })
+	int rows;
+
+	@Setup
+	public void setUp() {
+		this.workload = Workloads.load("CheckeredBoardWorkload", this.rows, 1);
+	}
+}
@@ -0,0 +1,20 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * createADiskPile, rotateColorsInPileOfDisks and getColorInPileOfDisks on
+ * piles of up to IndexedRaster.MAXIMUM_NUMBER_OF_SLOTS disks (one palette
+ * slot per disk)
+ */
+public class DiskPileBenchmark extends PatternBenchmark {
+
+	@Param({ "100", "10000", "65535" })
+	int disks;
+
+	@Setup
+	public void setUp() {
+		this.workload = Workloads.load("DiskPileWorkload", this.disks, 1);
+	}
+}
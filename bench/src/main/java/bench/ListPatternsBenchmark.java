@@ -0,0 +1,40 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * The methods of GraphicsElements that store the patterns in an ArrayList of
+ * Ovals or Rectangles, on patterns of 1 to 50 times the dialog maximums
+ * (MAXIMUM_NUMBER_OF_DISKS, MAXIMUM_NUMBER_OF_ROWS and
+ * MAXIMUM_NUMBER_OF_POINTS), created with the overloads that take the size
+ */
+public class ListPatternsBenchmark extends PatternBenchmark {
+
+	@Param({ "ListDiskPileWorkload", "ListCheckeredBoardWorkload",
+			"ListSierpinskiWorkload" })
+	String pattern;
+
+	/** Size of the pattern, in multiples of its dialog maximum */
+	@Param({ "1", "10", "50" })
+	int times;
+
+	@Setup
+	public void setUp() {
+		this.workload = Workloads.load(this.pattern, this.times
+				* maximum(this.pattern), 1);
+	}
+
+	// the dialog maximum of the pattern of the given workload (the constants
+	// of GraphicsElements)
+	private static int maximum(String pattern) {
+		switch (pattern) {
+		case "ListDiskPileWorkload":
+			return 100; // MAXIMUM_NUMBER_OF_DISKS
+		case "ListCheckeredBoardWorkload":
+			return 50; // MAXIMUM_NUMBER_OF_ROWS
+		default:
+			return 10000; // MAXIMUM_NUMBER_OF_POINTS
+		}
+	}
+}
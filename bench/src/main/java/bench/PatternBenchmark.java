@@ -0,0 +1,49 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The three benchmarks of a pattern: creation, color change and hit test.
+ * Subclasses set up the workload with their own parameters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xmx2g", "-Djava.awt.headless=true" })
+public abstract class PatternBenchmark {
+
+	Workload workload;
+
+	// locations of the hit tests, used in turn
+	int[] locations = Workloads.locations();
+
+	int next;
+
+	@Benchmark
+	public Object create() {
+		return this.workload.create();
+	}
+
+	@Benchmark
+	public Object transform() {
+		return this.workload.transform();
+	}
+
+	@Benchmark
+	public Object hitTest() {
+		int i = 2 * (this.next++ & (Workloads.LOCATIONS - 1));
+		return this.workload.hitTest(this.locations[i], this.locations[i + 1]);
+	}
+}
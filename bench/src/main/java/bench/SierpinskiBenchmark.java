@@ -0,0 +1,27 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * createASierpinskiPointCloud, changeColorsInSierpinskiTriangle and
+ * getColorInSierpinskiTriangle on point clouds of up to
+ * MAXIMUM_NUMBER_OF_CLOUD_POINTS points, generated on one thread or on all of
+ * the cores
+ */
+public class SierpinskiBenchmark extends PatternBenchmark {
+
+	@Param({ "10000", "1000000", "50000000" })
+	int points;
+
+	/** Number of generation threads (0 for all of the cores) */
+	@Param({ "1", "0" })
+	int threads;
+
+	@Setup
+	public void setUp() {
+		int n = (this.threads == 0) ? Runtime.getRuntime()
+				.availableProcessors() : this.threads;
+		this.workload = Workloads.load("SierpinskiWorkload", this.points, n);
+	}
+}
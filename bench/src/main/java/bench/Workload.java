@@ -0,0 +1,28 @@
+package bench;
+
+/**
+ * The operations of one pattern of GraphicsElements, as seen by the
+ * benchmarks.<br>
+ * GraphicsElements and the pattern classes are in the default package, which
+ * a JMH benchmark (and its generated code) can't be in or import. The
+ * workloads are written in the default package against this interface and
+ * loaded by name (see Workloads).
+ */
+public interface Workload {
+
+	/**
+	 * Prepare a pattern of the given size (number of disks, rows or points)
+	 * for transform and hitTest. threads is the number of generation threads
+	 * (ignored by the patterns that are not generated in parallel).
+	 */
+	void setUp(int size, int threads);
+
+	/** Create a new pattern of the size given to setUp */
+	Object create();
+
+	/** Change the colors of the pattern prepared by setUp */
+	Object transform();
+
+	/** Return the color at (x,y) in the pattern prepared by setUp */
+	Object hitTest(int x, int y);
+}
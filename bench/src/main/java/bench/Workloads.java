@@ -0,0 +1,46 @@
+package bench;
+
+import java.util.Random;
+
+/** Loads the workloads and provides the locations of the hit tests */
+public final class Workloads {
+
+	/** Width of the area of the patterns (ViewWindow.WINDOW_WIDTH) */
+	public static final int WIDTH = 400;
+
+	/** Height of the area of the patterns (ViewWindow.WINDOW_HEIGHT) */
+	public static final int HEIGHT = 300;
+
+	/** Number of precomputed hit test locations (a power of 2) */
+	public static final int LOCATIONS = 1024;
+
+	private Workloads() {
+	}
+
+	/**
+	 * Create the workload of the given class (in the default package) and set
+	 * it up
+	 */
+	public static Workload load(String className, int size, int threads) {
+		try {
+			Workload workload = (Workload) Class.forName(className)
+					.getDeclaredConstructor().newInstance();
+			workload.setUp(size, threads);
+			return workload;
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Can't load workload "
+					+ className, e);
+		}
+	}
+
+	/** Return LOCATIONS random x (even indices) and y (odd indices) */
+	public static int[] locations() {
+		Random random = new Random(42);
+		int[] locations = new int[2 * LOCATIONS];
+		for (int i = 0; i < locations.length; i += 2) {
+			locations[i] = random.nextInt(WIDTH);
+			locations[i + 1] = random.nextInt(HEIGHT);
+		}
+		return locations;
+	}
+}
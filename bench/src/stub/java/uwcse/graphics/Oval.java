@@ -0,0 +1,12 @@
+package uwcse.graphics;
+
+import java.awt.Color;
+
+/** Headless stand-in for uwcse.graphics.Oval */
+public class Oval extends Shape {
+
+	public Oval(int x, int y, int width, int height, Color color,
+			boolean filled) {
+		super(x, y, width, height, color, filled);
+	}
+}
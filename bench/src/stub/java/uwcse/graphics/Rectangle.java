@@ -0,0 +1,12 @@
+package uwcse.graphics;
+
+import java.awt.Color;
+
+/** Headless stand-in for uwcse.graphics.Rectangle */
+public class Rectangle extends Shape {
+
+	public Rectangle(int x, int y, int width, int height, Color color,
+			boolean filled) {
+		super(x, y, width, height, color, filled);
+	}
+}
@@ -0,0 +1,68 @@
+package uwcse.graphics;
+
+import java.awt.Color;
+
+/**
+ * Headless stand-in for the shapes of the uwcse.graphics library: a bounding
+ * box, a color and a filled flag, with the accessors GraphicsElements uses.
+ */
+public abstract class Shape {
+
+	private int x;
+
+	private int y;
+
+	private int width;
+
+	private int height;
+
+	private Color color;
+
+	private boolean filled;
+
+	protected Shape(int x, int y, int width, int height, Color color,
+			boolean filled) {
+		this.x = x;
+		this.y = y;
+		this.width = width;
+		this.height = height;
+		this.color = color;
+		this.filled = filled;
+	}
+
+	public int getX() {
+		return this.x;
+	}
+
+	public int getY() {
+		return this.y;
+	}
+
+	public int getWidth() {
+		return this.width;
+	}
+
+	public int getHeight() {
+		return this.height;
+	}
+
+	public int getCenterX() {
+		return this.x + this.width / 2;
+	}
+
+	public int getCenterY() {
+		return this.y + this.height / 2;
+	}
+
+	public Color getColor() {
+		return this.color;
+	}
+
+	public void setColor(Color color) {
+		this.color = color;
+	}
+
+	public boolean isFilled() {
+		return this.filled;
+	}
+}
@@ -0,0 +1,20 @@
+package uwcse.io;
+
+/**
+ * Headless stand-in for uwcse.io.Input: readIntDialog doesn't show anything
+ * and returns the answer set with setAnswer.
+ */
+public class Input {
+
+	// the value returned by readIntDialog
+	private static volatile int answer = 1;
+
+	/** Set the value returned by all of the calls to readIntDialog */
+	public static void setAnswer(int value) {
+		answer = value;
+	}
+
+	public int readIntDialog(String prompt) {
+		return answer;
+	}
+}
@@ -0,0 +1,98 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * PatternFile.open on corrupt and truncated files: each one throws an
+ * IOException, never an unchecked exception or an OutOfMemoryError
+ */
+public class PatternFileTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void opensWhatWasSaved() throws IOException {
+		Path file = this.directory.resolve("points.pat");
+		SierpinskiPoints points = new PatternBuilder().count(1000)
+				.bounds(40, 30).seed(1).sierpinskiPoints();
+		PatternFile.save(points, 40, 30, file);
+		PatternFile saved = PatternFile.open(file);
+		assertEquals(ViewWindow.SIERPINSKI, saved.getType());
+		assertEquals(1000, saved.getSize());
+	}
+
+	@Test
+	public void rejectsATruncatedFile() throws IOException {
+		Path file = this.directory.resolve("points.pat");
+		PatternFile.save(new PatternBuilder().count(1000).bounds(40, 30)
+				.seed(1).sierpinskiPoints(), 40, 30, file);
+		byte[] bytes = Files.readAllBytes(file);
+		Files.write(file, java.util.Arrays.copyOf(bytes, bytes.length - 1));
+		assertCorrupt(file);
+	}
+
+	@Test
+	public void rejectsAnInvalidArea() throws IOException {
+		assertCorrupt(write(ViewWindow.SIERPINSKI_DENSITY, 0, 30, 1, 0));
+		assertCorrupt(write(ViewWindow.SIERPINSKI_DENSITY, 40, -30, 1, 0));
+		assertCorrupt(write(ViewWindow.SIERPINSKI_DENSITY, 1 << 20, 1 << 20,
+				1, 0));
+		assertCorrupt(write(ViewWindow.SIERPINSKI_EXACT, Integer.MAX_VALUE,
+				Integer.MAX_VALUE, 1, 0));
+	}
+
+	@Test
+	public void rejectsAnInvalidNumberOfSlots() throws IOException {
+		assertCorrupt(write(ViewWindow.DISK_PILE, 40, 30, -1, 1));
+		assertCorrupt(write(ViewWindow.DISK_PILE, 40, 30, Integer.MAX_VALUE,
+				1));
+	}
+
+	@Test
+	public void rejectsAnInvalidSize() throws IOException {
+		assertCorrupt(write(ViewWindow.DISK_PILE, 40, 30, 1, -1));
+		assertCorrupt(write(ViewWindow.DISK_PILE, 40, 30, 1, Long.MAX_VALUE));
+		assertCorrupt(write(ViewWindow.SIERPINSKI, 40, 30, 1, -1));
+		assertCorrupt(write(ViewWindow.SIERPINSKI, 40, 30, 1,
+				Long.MAX_VALUE / 2));
+		assertCorrupt(write(ViewWindow.SIERPINSKI, 40, 30, 1,
+				Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void rejectsAnUnknownType() throws IOException {
+		assertCorrupt(write(-1, 40, 30, 1, 0));
+		assertCorrupt(write(ViewWindow.GASKET + 1, 40, 30, 1, 0));
+	}
+
+	// write a file with the given header, a palette of slots colors (at
+	// most 16) and no pattern
+	private Path write(int type, int width, int height, int slots, long size)
+			throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(PatternFile.HEADER_SIZE + 64)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(PatternFile.MAGIC).putInt(PatternFile.VERSION)
+				.putInt(type).putInt(width).putInt(height).putInt(slots)
+				.putLong(size);
+		Path file = Files.createTempFile(this.directory, "corrupt", ".pat");
+		Files.write(file, header.array());
+		return file;
+	}
+
+	private static void assertCorrupt(Path file) {
+		IOException e = assertThrows(IOException.class,
+				() -> PatternFile.open(file));
+		assertTrue(e.getMessage().startsWith("Corrupt pattern file"),
+				e.getMessage());
+	}
+}
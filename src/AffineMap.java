@@ -0,0 +1,100 @@
+/**
+ * An affine map of the plane, (x,y) -> (a x + b y + e, c x + d y + f), with
+ * the probability of choosing it in an iterated function system (see
+ * IteratedFunctionSystem). The probabilities of the maps of a system don't
+ * have to add up to 1: each map is chosen in proportion to its probability.
+ * <br>
+ * A map never changes, so it can be shared by several systems and threads.
+ */
+
+public class AffineMap {
+
+	// the coefficients of the map
+	private final double a;
+
+	private final double b;
+
+	private final double c;
+
+	private final double d;
+
+	private final double e;
+
+	private final double f;
+
+	// the weight of the map in its system
+	private final double probability;
+
+	/**
+	 * Create the map (x,y) -> (a x + b y + e, c x + d y + f), chosen with the
+	 * given probability
+	 */
+	public AffineMap(double a, double b, double c, double d, double e,
+			double f, double probability) {
+		if (!(probability >= 0) || Double.isInfinite(probability))
+			throw new IllegalArgumentException("Invalid probability: "
+					+ probability);
+		this.a = a;
+		this.b = b;
+		this.c = c;
+		this.d = d;
+		this.e = e;
+		this.f = f;
+		this.probability = probability;
+	}
+
+	/**
+	 * Create the map that moves each point towards (x,y), to ratio times its
+	 * distance to (x,y), chosen with the given probability
+	 */
+	public static AffineMap towards(double x, double y, double ratio,
+			double probability) {
+		return new AffineMap(ratio, 0, 0, ratio, (1 - ratio) * x, (1 - ratio)
+				* y, probability);
+	}
+
+	/** Return the coefficient of x in the new x */
+	public double getA() {
+		return this.a;
+	}
+
+	/** Return the coefficient of y in the new x */
+	public double getB() {
+		return this.b;
+	}
+
+	/** Return the coefficient of x in the new y */
+	public double getC() {
+		return this.c;
+	}
+
+	/** Return the coefficient of y in the new y */
+	public double getD() {
+		return this.d;
+	}
+
+	/** Return the constant term of the new x */
+	public double getE() {
+		return this.e;
+	}
+
+	/** Return the constant term of the new y */
+	public double getF() {
+		return this.f;
+	}
+
+	/** Return the probability of choosing this map */
+	public double getProbability() {
+		return this.probability;
+	}
+
+	/** Return the x coordinate of the image of (x,y) */
+	public double mapX(double x, double y) {
+		return this.a * x + this.b * y + this.e;
+	}
+
+	/** Return the y coordinate of the image of (x,y) */
+	public double mapY(double x, double y) {
+		return this.c * x + this.d * y + this.f;
+	}
+}
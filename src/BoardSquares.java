@@ -0,0 +1,47 @@
+import java.util.AbstractList;
+import java.util.RandomAccess;
+import uwcse.graphics.*;
+
+/**
+ * A read-only list of the squares of a CheckeredBoard, computed on demand.<br>
+ * The squares are listed in the same order as in
+ * GraphicsElements.createACheckeredBoard (column after column, from top to
+ * bottom in each column). get(i) creates a Rectangle from the geometry of the
+ * board, so the list costs a few bytes whatever the number of squares.
+ * Changing the color of a Rectangle of this list doesn't change the board:
+ * use the palette of the board instead.
+ */
+
+public class BoardSquares extends AbstractList<Rectangle> implements RandomAccess {
+
+	// the board whose squares are listed
+	private CheckeredBoard board;
+
+	/** Create the list of the squares of board */
+	public BoardSquares(CheckeredBoard board) {
+		this.board = board;
+	}
+
+	/**
+	 * Return the i-th square of the board, with its current color<br>
+	 * Precondition: 0 <= i < size()
+	 */
+	public Rectangle get(int i) {
+		if (i < 0 || i >= size())
+			throw new IndexOutOfBoundsException("Index: " + i + ", Size: "
+					+ size());
+		int rows = this.board.getRows();
+		int column = i / rows;
+		int row = i % rows;
+		int squareSize = this.board.getSquareSize();
+		return new Rectangle(this.board.getLeft() + column * squareSize,
+				this.board.getTop() + row * squareSize, squareSize, squareSize,
+				this.board.getColor(column, row), true);
+	}
+
+	/** Return the number of squares of the board */
+	public int size() {
+		long rows = this.board.getRows();
+		return (int) Math.min(rows * rows, Integer.MAX_VALUE);
+	}
+}
@@ -0,0 +1,285 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Predicate;
+
+/**
+ * The chaos game: starting at the first corner of a polygon, repeatedly move
+ * halfway towards a randomly chosen corner and record the point reached.<br>
+ * The points can be generated in parallel: the requested number of points is
+ * split in as many slices as there are threads, and each slice is a separate
+ * walk (starting at the first corner) written in its own part of the
+ * coordinate arrays. The random generator of each slice is split from a
+ * SplittableRandom seeded with the given seed, so the points only depend on
+ * the seed and the number of threads, not on the scheduling of the threads.
+ */
+
+public class ChaosGame {
+
+	// the corners of the polygon
+	private int[] cornersX;
+
+	private int[] cornersY;
+
+	// size of the area the points are in
+	private int width;
+
+	private int height;
+
+	/**
+	 * Create a chaos game on the polygon with the given corners, in a width x
+	 * height area
+	 */
+	public ChaosGame(int[] cornersX, int[] cornersY, int width, int height) {
+		if (cornersX.length == 0 || cornersX.length != cornersY.length)
+			throw new IllegalArgumentException("Invalid corners: "
+					+ cornersX.length + " x, " + cornersY.length + " y");
+		this.cornersX = cornersX.clone();
+		this.cornersY = cornersY.clone();
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * Create the chaos game of the Sierpinski triangle that fills a width x
+	 * height area (top middle, bottom left and bottom right corners, as in
+	 * GraphicsElements.createASierpinskiTriangle)
+	 */
+	public static ChaosGame sierpinski(int width, int height) {
+		return new ChaosGame(new int[] { width / 2, 0, width - 1 }, new int[] {
+				0, height - 1, height - 1 }, width, height);
+	}
+
+	/**
+	 * Generate pointCount points with threads walks run in parallel. The
+	 * points have the color of slot 0 of palette. For a given seed and number
+	 * of threads, the points are always the same.
+	 */
+	public SierpinskiPoints generate(int pointCount, long seed, int threads,
+			Palette palette) {
+		if (pointCount < 0 || threads <= 0)
+			throw new IllegalArgumentException("Invalid request: " + pointCount
+					+ " points with " + threads + " threads");
+		short[] xs = new short[pointCount];
+		short[] ys = new short[pointCount];
+		int[] bounds = new int[threads + 1];
+		for (int i = 0; i <= threads; i++) {
+			bounds[i] = sliceStart(pointCount, i, threads);
+		}
+		Walks walks = new Walks(xs, ys, split(seed, threads), bounds,
+				firstCorner(this.cornersX, threads), firstCorner(this.cornersY,
+						threads), 0, threads);
+		if (threads == 1) {
+			walks.compute();
+		} else {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			try {
+				pool.invoke(walks);
+			} finally {
+				pool.shutdown();
+			}
+		}
+		return new SierpinskiPoints(xs, ys, walks.coverage, palette);
+	}
+
+	/**
+	 * Generate the same pointCount points as generate(pointCount, seed,
+	 * threads, palette), and let the caller watch the cloud grow (on the
+	 * thread calling this method). The threads walks are run in parallel, a
+	 * few points of each at a time: each batch of about batchSize points
+	 * continues each walk with batchSize / threads more points and is added
+	 * to the cloud at once. After each batch, listener is given the cloud. If
+	 * listener returns false, no more points are added and the partial cloud
+	 * is returned.<br>
+	 * The batches only change the order of the points in the cloud, not the
+	 * points: the pixels covered are the same as with generate.
+	 */
+	public SierpinskiPoints generate(int pointCount, long seed, int threads,
+			Palette palette, int batchSize, Predicate<SierpinskiPoints> listener) {
+		if (pointCount < 0 || threads <= 0 || batchSize <= 0)
+			throw new IllegalArgumentException("Invalid request: " + pointCount
+					+ " points with " + threads + " threads in batches of "
+					+ batchSize);
+		SierpinskiPoints points = new SierpinskiPoints(pointCount, palette,
+				this.width, this.height);
+		SplittableRandom[] randoms = split(seed, threads);
+		// where each walk is, and how many points it has written
+		int[] walkX = firstCorner(this.cornersX, threads);
+		int[] walkY = firstCorner(this.cornersY, threads);
+		int[] written = new int[threads];
+
+		int share = Math.max(1, batchSize / threads);
+		short[] batchX = new short[(int) Math.min(pointCount, (long) share
+				* threads)];
+		short[] batchY = new short[batchX.length];
+		ForkJoinPool pool = (threads == 1) ? null : new ForkJoinPool(threads);
+		try {
+			while (points.size() < pointCount) {
+				// the next points of each walk, up to the end of its slice
+				int[] bounds = new int[threads + 1];
+				for (int i = 0; i < threads; i++) {
+					int n = Math.min(share, sliceStart(pointCount, i + 1,
+							threads)
+							- sliceStart(pointCount, i, threads)
+							- written[i]);
+					written[i] += n;
+					bounds[i + 1] = bounds[i] + n;
+				}
+				Walks walks = new Walks(batchX, batchY, randoms, bounds, walkX,
+						walkY, 0, threads);
+				if (pool == null) {
+					walks.compute();
+				} else {
+					pool.invoke(walks);
+				}
+				points.addAll(batchX, batchY, bounds[threads], walks.coverage);
+				if (!listener.test(points))
+					break;
+			}
+		} finally {
+			if (pool != null)
+				pool.shutdown();
+		}
+		return points;
+	}
+
+	/**
+	 * Write in xs[from..to) and ys[from..to) the points of a walk starting at
+	 * the first corner, and set the pixels they cover in coverage (unless
+	 * coverage is null)
+	 */
+	public void walk(short[] xs, short[] ys, int from, int to,
+			SplittableRandom random, PixelBitmap coverage) {
+		walk(xs, ys, from, to, this.cornersX[0], this.cornersY[0], random,
+				coverage);
+	}
+
+	/**
+	 * Write in xs[from..to) and ys[from..to) the points of a walk starting at
+	 * (x,y), and set the pixels they cover in coverage (unless coverage is
+	 * null)
+	 */
+	public void walk(short[] xs, short[] ys, int from, int to, int x, int y,
+			SplittableRandom random, PixelBitmap coverage) {
+		int corners = this.cornersX.length;
+		int radius = SierpinskiPoints.POINT_DIAMETER / 2;
+		for (int i = from; i < to; i++) {
+			int choice = random.nextInt(corners);
+			x = (x + this.cornersX[choice]) / 2;
+			y = (y + this.cornersY[choice]) / 2;
+			xs[i] = (short) x;
+			ys[i] = (short) y;
+			if (coverage != null)
+				coverage.setDisk(x, y, radius);
+		}
+	}
+
+	/**
+	 * Add to density the pointCount points of a walk starting at the first
+	 * corner
+	 */
+	public void walk(DensityBuffer density, long pointCount,
+			SplittableRandom random) {
+		int corners = this.cornersX.length;
+		int x = this.cornersX[0];
+		int y = this.cornersY[0];
+		for (long i = 0; i < pointCount; i++) {
+			int choice = random.nextInt(corners);
+			x = (x + this.cornersX[choice]) / 2;
+			y = (y + this.cornersY[choice]) / 2;
+			density.add(x, y);
+		}
+	}
+
+	// one generator per slice, split in order from the seed
+	private static SplittableRandom[] split(long seed, int slices) {
+		SplittableRandom root = new SplittableRandom(seed);
+		SplittableRandom[] randoms = new SplittableRandom[slices];
+		for (int i = 0; i < slices; i++) {
+			randoms[i] = root.split();
+		}
+		return randoms;
+	}
+
+	// the first corner coordinate, once per slice
+	private static int[] firstCorner(int[] corners, int slices) {
+		int[] start = new int[slices];
+		Arrays.fill(start, corners[0]);
+		return start;
+	}
+
+	// index of the first point of the given slice of count points
+	private static int sliceStart(int count, int slice, int slices) {
+		return (int) ((long) count * slice / slices);
+	}
+
+	/**
+	 * The walks of the slices first..last (excluded). Slice i continues the
+	 * walk that is at (walkX[i], walkY[i]) with the points
+	 * bounds[i]..bounds[i + 1] (excluded) of the coordinate arrays, and leaves
+	 * there where the walk ends. The slices are split in halves until there
+	 * is one per task; each task marks the pixels of its points in its own
+	 * bitmap and the bitmaps are merged on the way back.
+	 */
+	private class Walks extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private short[] xs;
+
+		private short[] ys;
+
+		private SplittableRandom[] randoms;
+
+		private int[] bounds;
+
+		private int[] walkX;
+
+		private int[] walkY;
+
+		private int first;
+
+		private int last;
+
+		// the pixels covered by the points of slices first..last
+		private PixelBitmap coverage;
+
+		Walks(short[] xs, short[] ys, SplittableRandom[] randoms, int[] bounds,
+				int[] walkX, int[] walkY, int first, int last) {
+			this.xs = xs;
+			this.ys = ys;
+			this.randoms = randoms;
+			this.bounds = bounds;
+			this.walkX = walkX;
+			this.walkY = walkY;
+			this.first = first;
+			this.last = last;
+		}
+
+		protected void compute() {
+			if (this.last - this.first == 1) {
+				int i = this.first;
+				int from = this.bounds[i];
+				int to = this.bounds[i + 1];
+				this.coverage = new PixelBitmap(ChaosGame.this.width,
+						ChaosGame.this.height);
+				walk(this.xs, this.ys, from, to, this.walkX[i], this.walkY[i],
+						this.randoms[i], this.coverage);
+				if (to > from) {
+					this.walkX[i] = this.xs[to - 1];
+					this.walkY[i] = this.ys[to - 1];
+				}
+				return;
+			}
+			int middle = (this.first + this.last) >>> 1;
+			Walks low = new Walks(this.xs, this.ys, this.randoms, this.bounds,
+					this.walkX, this.walkY, this.first, middle);
+			Walks high = new Walks(this.xs, this.ys, this.randoms, this.bounds,
+					this.walkX, this.walkY, middle, this.last);
+			invokeAll(low, high);
+			low.coverage.or(high.coverage);
+			this.coverage = low.coverage;
+		}
+	}
+}
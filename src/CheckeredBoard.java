@@ -0,0 +1,226 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.TexturePaint;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import uwcse.graphics.*;
+
+/**
+ * A square checkered board described by its geometry instead of one Rectangle
+ * per square.<br>
+ * The board is a regular grid of rows x rows squares of the same size whose
+ * top left corner is at (left, top). The square in column i and row j has the
+ * first color if i + j is even and the second color otherwise, so the square
+ * (and color) at any location is found with two integer divisions, whatever
+ * the number of rows.<br>
+ * The two colors are the slots of a Palette, so flipping the colors of the
+ * board swaps the palette for its rotation (see Palette).<br>
+ * The squares are only created on demand (see squares()), and rasterizing the
+ * board only visits the squares within the raster, so a board of 10,000 x
+ * 10,000 squares costs the same as a small one.<br>
+ * The board is a periodic pattern of 2 x 2 squares, so it can also be painted
+ * with a single fill of a TexturePaint whose tile is 2 x 2 squares (see
+ * paint). There are two tiles (one per order of the colors), computed once.
+ */
+
+public class CheckeredBoard implements Pattern {
+
+	// number of rows (= number of columns)
+	private int rows;
+
+	// side of a square, in pixels
+	private int squareSize;
+
+	// location of the top left corner of the board
+	private int left;
+
+	private int top;
+
+	// the two colors of the board (slot 0 is the color of the top left
+	// square)
+	private AtomicReference<Palette> palette;
+
+	// the 2 x 2 squares tiles of the board: tiles[k] is the tile when the
+	// palette has been rotated k times (modulo 2). Created on the first paint
+	// (if several threads paint at once, each may create them: they are the
+	// same).
+	private volatile BufferedImage[] tiles;
+
+	/**
+	 * Create a board of rows x rows squares of side squareSize, with its top
+	 * left corner at (left, top). The top left square has the color first,
+	 * its neighbors the color second.
+	 */
+	public CheckeredBoard(int rows, int squareSize, int left, int top,
+			Color first, Color second) {
+		if (rows <= 0 || squareSize <= 0)
+			throw new IllegalArgumentException("Invalid board: " + rows
+					+ " rows of squares of size " + squareSize);
+		this.rows = rows;
+		this.squareSize = squareSize;
+		this.left = left;
+		this.top = top;
+		this.palette = new AtomicReference<Palette>(new Palette(first, second));
+	}
+
+	/**
+	 * Create the largest board of rows x rows squares that fits in a width x
+	 * height area. The board is centered horizontally and starts at the top
+	 * of the area (as in GraphicsElements.createACheckeredBoard). If there
+	 * are more rows than pixels, the squares are one pixel wide and the board
+	 * starts at the top left corner of the area (and extends past it).
+	 */
+	public static CheckeredBoard fit(int rows, int width, int height,
+			Color first, Color second) {
+		int squareSize = Math.max(Math.min(width, height) / rows, 1);
+		int left = Math.max((width - squareSize * rows) / 2, 0);
+		return new CheckeredBoard(rows, squareSize, left, 0, first, second);
+	}
+
+	/** Return the number of rows (= number of columns) of the board */
+	public int getRows() {
+		return this.rows;
+	}
+
+	/** Return the side of a square, in pixels */
+	public int getSquareSize() {
+		return this.squareSize;
+	}
+
+	/** Return the x coordinate of the left side of the board */
+	public int getLeft() {
+		return this.left;
+	}
+
+	/** Return the y coordinate of the top side of the board */
+	public int getTop() {
+		return this.top;
+	}
+
+	/** Return the side of the board, in pixels */
+	public int getBoardSize() {
+		return this.rows * this.squareSize;
+	}
+
+	/**
+	 * Return the squares of the board as a read-only list of Rectangles,
+	 * created on demand (see BoardSquares)
+	 */
+	public List<Rectangle> squares() {
+		return new BoardSquares(this);
+	}
+
+	/**
+	 * Return the color of the square in the given column and row<br>
+	 * Precondition: 0 <= column, row < getRows()
+	 */
+	public Color getColor(int column, int row) {
+		return this.palette.get().get((column + row) & 1);
+	}
+
+	/** Return the palette of the board (slot 0 is the top left square) */
+	public Palette getPalette() {
+		return this.palette.get();
+	}
+
+	/** Return the number of bytes of the tiles of the board (if painted) */
+	public long getBytes() {
+		BufferedImage[] tiles = this.tiles;
+		if (tiles == null)
+			return 0;
+		// pixels of 4 bytes
+		return 4L * tiles[0].getWidth() * tiles[0].getHeight() * tiles.length;
+	}
+
+	/**
+	 * Return the color of the board at location (x,y). If (x,y) is not on the
+	 * board, return null.
+	 */
+	public Color getColorAt(int x, int y) {
+		int dx = x - this.left;
+		int dy = y - this.top;
+		if (dx < 0 || dy < 0 || dx >= getBoardSize() || dy >= getBoardSize())
+			return null;
+		return getColor(dx / this.squareSize, dy / this.squareSize);
+	}
+
+	/** Swap the two colors of the board */
+	public void flipColors() {
+		this.palette.updateAndGet(Palette::rotated);
+	}
+
+	/**
+	 * Paint the board in g with a single fill of a TexturePaint (whatever the
+	 * number of rows). Only the part of the board within the clip of g is
+	 * filled.
+	 */
+	public void paint(Graphics2D g) {
+		Palette palette = this.palette.get();
+		BufferedImage[] tiles = this.tiles;
+		if (tiles == null) {
+			tiles = new BufferedImage[] { createTile(palette, 0),
+					createTile(palette, 1) };
+			this.tiles = tiles;
+		}
+		int size = 2 * this.squareSize;
+		g.setPaint(new TexturePaint(tiles[palette.getOffset() & 1],
+				new Rectangle2D.Double(this.left, this.top, size, size)));
+		java.awt.Rectangle board = new java.awt.Rectangle(this.left, this.top,
+				getBoardSize(), getBoardSize());
+		java.awt.Rectangle clip = g.getClipBounds();
+		g.fill((clip == null) ? board : board.intersection(clip));
+	}
+
+	/**
+	 * Return the tile of 2 x 2 squares of the board when the palette has been
+	 * rotated rotations times (modulo 2), given the palette now
+	 */
+	private BufferedImage createTile(Palette palette, int rotations) {
+		// color of the top left square after that many rotations: the slot
+		// that has it now is offset by the current rotations of the palette
+		int slot = (rotations + palette.getOffset()) & 1;
+		Color first = palette.get(slot);
+		Color second = palette.get(1 - slot);
+		int size = this.squareSize;
+		BufferedImage tile = new BufferedImage(2 * size, 2 * size,
+				BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = tile.createGraphics();
+		g.setColor(first);
+		g.fillRect(0, 0, 2 * size, 2 * size);
+		g.setColor(second);
+		g.fillRect(size, 0, size, size);
+		g.fillRect(0, size, size, size);
+		g.dispose();
+		return tile;
+	}
+
+	/**
+	 * Write the slots of the squares of the board in raster, from (left, top)
+	 * included to (right, bottom) excluded. Only the squares within that area
+	 * are visited.
+	 */
+	public void rasterize(IndexedRaster raster, int left, int top, int right,
+			int bottom) {
+		raster.clear(left, top, right, bottom);
+		// part of the board within the area
+		int x0 = Math.max(this.left, left);
+		int x1 = Math.min(this.left + getBoardSize(), right);
+		int y0 = Math.max(this.top, top);
+		int y1 = Math.min(this.top + getBoardSize(), bottom);
+		if (x0 >= x1)
+			return;
+		int firstColumn = (x0 - this.left) / this.squareSize;
+		int lastColumn = (x1 - 1 - this.left) / this.squareSize;
+		for (int y = y0; y < y1; y++) {
+			int row = (y - this.top) / this.squareSize;
+			for (int column = firstColumn; column <= lastColumn; column++) {
+				int x = this.left + column * this.squareSize;
+				raster.fillSpan(y, Math.max(x, x0),
+						Math.min(x + this.squareSize, x1),
+						1 + ((column + row) & 1));
+			}
+		}
+	}
+}
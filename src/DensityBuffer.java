@@ -0,0 +1,224 @@
+import java.awt.Color;
+import java.nio.IntBuffer;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A point cloud accumulated in a per-pixel counter array.<br>
+ * Instead of storing each point, adding a point increments the counter of
+ * the pixel it falls on, so the memory used is bounded by the size of the
+ * area whatever the number of points.<br>
+ * The pixels can be displayed with a single color, or shaded with the
+ * logarithm of their count (log-density shading, useful with very large
+ * numbers of points). The palette has levels shades of each base color
+ * (levels = 1 without shading): slot l of the palette is the shade l of the
+ * current base color, and changing the base color rotates the palette by
+ * levels slots.<br>
+ * The points can be added by one thread while other threads read the
+ * buffer: the counts are published by publish(), after which they are
+ * visible to all of the threads.
+ */
+
+public class DensityBuffer implements Pattern {
+
+	// size of the area
+	private int width;
+
+	private int height;
+
+	// number of points on each pixel, row after row
+	private int[] counts;
+
+	// number of points added, and largest count (as of the last publish)
+	private long added;
+
+	private int maxCount;
+
+	private volatile long published;
+
+	private volatile int publishedMaxCount;
+
+	// number of shades of each base color
+	private int levels;
+
+	// levels shades of each base color
+	private AtomicReference<Palette> palette;
+
+	/**
+	 * Create an empty buffer for a width x height area. The pixels are
+	 * shaded with levels shades of each of the base colors (no shading if
+	 * levels is 1). The first base color is used first.
+	 */
+	public DensityBuffer(int width, int height, Color[] baseColors, int levels) {
+		if (levels <= 0 || (long) levels * baseColors.length > IndexedRaster.MAXIMUM_NUMBER_OF_SLOTS)
+			throw new IllegalArgumentException("Invalid number of shades: "
+					+ levels);
+		this.width = width;
+		this.height = height;
+		this.counts = new int[width * height];
+		this.levels = levels;
+		this.palette = new AtomicReference<Palette>(new Palette(shades(
+				baseColors, levels)));
+	}
+
+	/**
+	 * Return levels shades of each base color, from the lightest (a blend of
+	 * the color with white) to the color itself
+	 */
+	private static Color[] shades(Color[] baseColors, int levels) {
+		Color[] shades = new Color[baseColors.length * levels];
+		for (int i = 0; i < baseColors.length; i++) {
+			Color c = baseColors[i];
+			for (int l = 0; l < levels; l++) {
+				float f = (float) (l + 1) / levels;
+				shades[i * levels + l] = new Color(
+						Math.round(255 - f * (255 - c.getRed())),
+						Math.round(255 - f * (255 - c.getGreen())),
+						Math.round(255 - f * (255 - c.getBlue())));
+			}
+		}
+		return shades;
+	}
+
+	/** Return the width of the area */
+	public int getWidth() {
+		return this.width;
+	}
+
+	/** Return the height of the area */
+	public int getHeight() {
+		return this.height;
+	}
+
+	/** Return the number of shades of each base color */
+	public int getLevels() {
+		return this.levels;
+	}
+
+	/**
+	 * Add a point at (x,y). Do nothing if (x,y) is outside of the area. The
+	 * point is visible to other threads after the next publish().
+	 */
+	public void add(int x, int y) {
+		if (x < 0 || x >= this.width || y < 0 || y >= this.height)
+			return;
+		int i = y * this.width + x;
+		int count = this.counts[i];
+		// saturate rather than overflow
+		if (count == Integer.MAX_VALUE)
+			return;
+		this.counts[i] = ++count;
+		if (count > this.maxCount)
+			this.maxCount = count;
+		this.added++;
+	}
+
+	/**
+	 * Add counts.get(i) points to pixel i (i = y * width + x) for each of the
+	 * width * height pixels, reading counts from its position (e.g. counts
+	 * written by copyTo). The points are visible to other threads after the
+	 * next publish().
+	 */
+	public void addAll(IntBuffer counts) {
+		for (int i = 0; i < this.counts.length; i++) {
+			int added = counts.get();
+			if (added <= 0)
+				continue;
+			// saturate rather than overflow
+			int count = (int) Math.min((long) this.counts[i] + added,
+					Integer.MAX_VALUE);
+			this.added += count - this.counts[i];
+			this.counts[i] = count;
+			if (count > this.maxCount)
+				this.maxCount = count;
+		}
+	}
+
+	/**
+	 * Write the number of points on each pixel, row after row, to out from
+	 * its position (the points added so far, published or not)
+	 */
+	public void copyTo(IntBuffer out) {
+		out.put(this.counts);
+	}
+
+	/** Make the points added so far visible to all of the threads */
+	public void publish() {
+		this.publishedMaxCount = this.maxCount;
+		this.published = this.added;
+	}
+
+	/** Return the number of points published so far (in the area) */
+	public long getTotal() {
+		return this.published;
+	}
+
+	/** Return the number of points on the pixel (x,y) (0 if outside) */
+	public int getCount(int x, int y) {
+		if (x < 0 || x >= this.width || y < 0 || y >= this.height)
+			return 0;
+		return this.counts[y * this.width + x];
+	}
+
+	/**
+	 * Return the shade (0 to levels - 1) of a pixel with count points, when
+	 * the largest count is maxCount: the shades split log(1 + count) evenly
+	 */
+	private int level(int count, int maxCount) {
+		if (this.levels == 1 || maxCount <= 1)
+			return this.levels - 1;
+		double l = Math.log1p(count) / Math.log1p(maxCount);
+		return Math.min((int) (l * this.levels), this.levels - 1);
+	}
+
+	/** Return the palette of the shades of the base colors */
+	public Palette getPalette() {
+		return this.palette.get();
+	}
+
+	/** Return the number of bytes of the counts of the pixels */
+	public long getBytes() {
+		return 4L * this.counts.length;
+	}
+
+	/** Use the next base color (the palette rotates by levels slots) */
+	public void changeColors() {
+		int levels = this.levels;
+		this.palette.updateAndGet(p -> p.rotated(levels));
+	}
+
+	/**
+	 * Return the color of the pixel (x,y) (its shade of the current base
+	 * color). If there is no point at (x,y), return null.
+	 */
+	public Color getColorAt(int x, int y) {
+		long total = this.published; // read first, see publish
+		int count = getCount(x, y);
+		if (total == 0 || count == 0)
+			return null;
+		return this.palette.get().get(level(count, this.publishedMaxCount));
+	}
+
+	/**
+	 * Write the slot of the shade of each pixel with points in raster, from
+	 * (left, top) included to (right, bottom) excluded. While points are
+	 * being added, the shades are relative to the largest count published
+	 * when the area is rasterized.
+	 */
+	public void rasterize(IndexedRaster raster, int left, int top, int right,
+			int bottom) {
+		long total = this.published; // read first, see publish
+		int maxCount = this.publishedMaxCount;
+		raster.clear(left, top, right, bottom);
+		if (total == 0)
+			return;
+		right = Math.min(right, this.width);
+		bottom = Math.min(bottom, this.height);
+		for (int y = top; y < bottom; y++) {
+			for (int x = left; x < right; x++) {
+				int count = this.counts[y * this.width + x];
+				if (count > 0)
+					raster.set(x, y, 1 + level(count, maxCount));
+			}
+		}
+	}
+}
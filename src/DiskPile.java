@@ -0,0 +1,230 @@
+import java.awt.Color;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+/**
+ * A top view of a pile of concentric disks of strictly decreasing radii (from
+ * bottom to top).<br>
+ * Since the disks share their center, the distance of a location to the
+ * center is enough to know which disk is on top at that location: it is the
+ * smallest disk whose radius is greater than that distance. The radii are
+ * sorted, so that disk is found with a binary search.<br>
+ * The colors of the disks are kept in a Palette (disk i uses slot i), so
+ * rotating the colors of the whole pile is a single increment.<br>
+ * For piles that fit in a window, the disk on top is precomputed for every
+ * squared distance to the center (an integer), so finding it is a single
+ * array lookup. Rasterizing the pile writes each pixel once from that table,
+ * one row per task in parallel, instead of drawing every disk over the
+ * previous ones.
+ */
+
+public class DiskPile implements Pattern {
+
+	// the common center of the disks
+	private int centerX;
+
+	private int centerY;
+
+	// radii[i] is the radius of the i-th disk from the bottom (decreasing)
+	private double[] radii;
+
+	// slot i of the palette is the color of the i-th disk from the bottom
+	private AtomicReference<Palette> palette;
+
+	/**
+	 * Maximum number of entries of the table of the disks on top (a bottom
+	 * disk of radius up to 1024)
+	 */
+	public static final int MAXIMUM_TABLE_SIZE = 1 << 20;
+
+	// diskAt[d] is the index of the disk on top at the squared distance d
+	// from the center, for d < diskAt.length (null if the pile is too large)
+	private int[] diskAt;
+
+	/**
+	 * Create a pile of disks centered at (centerX, centerY). radii and colors
+	 * list the disks from bottom to top.<br>
+	 * Precondition: radii is strictly decreasing and has as many elements as
+	 * colors
+	 */
+	public DiskPile(int centerX, int centerY, double[] radii, Color[] colors) {
+		if (radii.length == 0 || radii.length != colors.length)
+			throw new IllegalArgumentException("Expected one color per disk: "
+					+ radii.length + " radii, " + colors.length + " colors");
+		for (int i = 1; i < radii.length; i++) {
+			if (radii[i] >= radii[i - 1])
+				throw new IllegalArgumentException(
+						"The radii must be strictly decreasing (disk " + i
+								+ ")");
+		}
+		this.centerX = centerX;
+		this.centerY = centerY;
+		this.radii = radii.clone();
+		this.palette = new AtomicReference<Palette>(new Palette(colors));
+		this.diskAt = createTable(this.radii);
+	}
+
+	/**
+	 * Return the table of the index of the disk on top at each squared
+	 * distance to the center within the bottom disk, or null if the bottom
+	 * disk is too large for the table to have at most MAXIMUM_TABLE_SIZE
+	 * entries
+	 */
+	private static int[] createTable(double[] radii) {
+		double size = Math.ceil(radii[0] * radii[0]);
+		if (size > MAXIMUM_TABLE_SIZE)
+			return null;
+		int[] table = new int[(int) size];
+		// the disk on top moves down the pile as the distance grows
+		int i = radii.length - 1;
+		for (int d = 0; d < table.length; d++) {
+			while (radii[i] * radii[i] <= d)
+				i--;
+			table[d] = i;
+		}
+		return table;
+	}
+
+	/**
+	 * Create the largest pile of disks that fits in a width x height area,
+	 * centered in that area. The diameters decrease evenly from the size of
+	 * the area down to minDiameter (or half the size of the area, if the area
+	 * is too small for minDiameter). The colors of the disks are listed from
+	 * bottom to top.<br>
+	 * Precondition: width > 0 and height > 0
+	 */
+	public static DiskPile fit(int width, int height, int minDiameter,
+			Color[] colors) {
+		int numDisks = colors.length;
+		int size = Math.min(width, height);
+		if (size <= 0)
+			throw new IllegalArgumentException("Invalid area: " + width + "x"
+					+ height);
+		// the radii must decrease even in a tiny area
+		minDiameter = Math.min(minDiameter, size / 2);
+		double maxRadius = size / 2.0;
+		double step = (maxRadius - minDiameter / 2.0) / numDisks;
+		double[] radii = new double[numDisks];
+		for (int i = 0; i < numDisks; i++) {
+			radii[i] = maxRadius - i * step;
+		}
+		return new DiskPile(width / 2, height / 2, radii, colors);
+	}
+
+	/** Return the number of disks in the pile */
+	public int size() {
+		return this.radii.length;
+	}
+
+	/** Return the x coordinate of the center of the disks */
+	public int getCenterX() {
+		return this.centerX;
+	}
+
+	/** Return the y coordinate of the center of the disks */
+	public int getCenterY() {
+		return this.centerY;
+	}
+
+	/** Return the radius of the i-th disk from the bottom */
+	public double getRadius(int i) {
+		return this.radii[i];
+	}
+
+	/** Return the color of the i-th disk from the bottom */
+	public Color getColor(int i) {
+		return this.palette.get().get(i);
+	}
+
+	/** Return the palette of the disks (slot i is the i-th disk from the bottom) */
+	public Palette getPalette() {
+		return this.palette.get();
+	}
+
+	/**
+	 * Return the number of bytes of the radii and of the table of the disks
+	 * on top
+	 */
+	public long getBytes() {
+		return 8L * this.radii.length
+				+ ((this.diskAt != null) ? 4L * this.diskAt.length : 0);
+	}
+
+	/**
+	 * Return the index (from the bottom) of the disk on top at location
+	 * (x,y), or -1 if (x,y) is not in the pile
+	 */
+	public int indexAt(int x, int y) {
+		long dx = x - this.centerX;
+		long dy = y - this.centerY;
+		return indexAt(dx * dx + dy * dy);
+	}
+
+	/**
+	 * Return the index (from the bottom) of the disk on top at the squared
+	 * distance distance from the center, or -1 if it is not in the pile
+	 */
+	private int indexAt(long distance) {
+		if (this.diskAt != null)
+			return (distance < this.diskAt.length) ? this.diskAt[(int) distance]
+					: -1;
+
+		// find the last disk with radius^2 > distance (the radii decrease)
+		int low = 0;
+		int high = this.radii.length - 1;
+		int found = -1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			if (this.radii[middle] * this.radii[middle] > distance) {
+				found = middle;
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Return the color of the pile at location (x,y). If (x,y) is not in the
+	 * pile, return null.
+	 */
+	public Color getColorAt(int x, int y) {
+		int i = indexAt(x, y);
+		return (i < 0) ? null : this.palette.get().get(i);
+	}
+
+	/**
+	 * Give each disk the color of the disk just above it. The top disk gets
+	 * the color of the bottom disk. No disk is touched: the palette is
+	 * swapped for its rotation.
+	 */
+	public void rotateColors() {
+		this.palette.updateAndGet(Palette::rotated);
+	}
+
+	/**
+	 * Write the slot of the disk on top at each pixel in raster (BACKGROUND
+	 * outside of the pile). Every pixel is written once, and the rows are
+	 * written in parallel.
+	 */
+	public void rasterize(IndexedRaster raster) {
+		IntStream.range(0, raster.getHeight()).parallel().forEach(
+				y -> rasterize(raster, 0, y, raster.getWidth(), y + 1));
+	}
+
+	/**
+	 * Write the slot of the disk on top at each pixel of raster from (left,
+	 * top) included to (right, bottom) excluded
+	 */
+	public void rasterize(IndexedRaster raster, int left, int top, int right,
+			int bottom) {
+		for (int y = top; y < bottom; y++) {
+			long dy = y - this.centerY;
+			for (int x = left; x < right; x++) {
+				long dx = x - this.centerX;
+				raster.set(x, y, 1 + indexAt(dx * dx + dy * dy));
+			}
+		}
+	}
+}
@@ -1,5 +1,6 @@
 import java.awt.Color;
 import java.util.*;
+import java.util.function.Predicate;
 import uwcse.io.*;
 import uwcse.graphics.*;
 import javax.swing.*;
@@ -13,12 +14,52 @@ public class GraphicsElements {
 	/** Maximum number of disks in a pile of disks */
 	public static final int MAXIMUM_NUMBER_OF_DISKS = 100;
 
+	/** Maximum number of disks in a pile of disks stored as a DiskPile */
+	public static final int MAXIMUM_NUMBER_OF_PILE_DISKS = 10000;
+
 	/** Maximum number of rows (or columns) in a square checkered board */
 	public static final int MAXIMUM_NUMBER_OF_ROWS = 50;
 
+	/**
+	 * Maximum number of rows (or columns) in a square checkered board
+	 * described by its geometry. Past the size of the window, the squares are
+	 * one pixel wide and the board extends past the window.
+	 */
+	public static final int MAXIMUM_NUMBER_OF_GRID_ROWS = 10000;
+
 	/** Maximum number of points in a Sierpinski triangle */
 	public static final int MAXIMUM_NUMBER_OF_POINTS = 10000;
 
+	/** Maximum number of points in a Sierpinski triangle stored as a point cloud */
+	public static final int MAXIMUM_NUMBER_OF_CLOUD_POINTS = 50000000;
+
+	/** Number of points from which a point cloud is generated in parallel */
+	public static final int PARALLEL_GENERATION_THRESHOLD = 1000000;
+
+	/** Number of points added at once to a point cloud watched as it grows */
+	public static final int POINT_CLOUD_BATCH_SIZE = 1 << 16;
+
+	/** Maximum number of points in a Sierpinski triangle stored as a density */
+	public static final int MAXIMUM_NUMBER_OF_DENSITY_POINTS = 1000000000;
+
+	/** Number of points from which a density is shaded with the log of the counts */
+	public static final int DENSITY_SHADING_THRESHOLD = 1000000;
+
+	/** Number of shades of each color of a shaded density */
+	public static final int DENSITY_SHADES = 32;
+
+	/** Number of points added at once to a density watched as it grows */
+	public static final int DENSITY_BATCH_SIZE = 1 << 20;
+
+	/**
+	 * Number of points added at once to a fractal watched as it grows (split
+	 * between the cores)
+	 */
+	public static final int FRACTAL_BATCH_SIZE = 1 << 24;
+
+	/** Number of sides of the polygon of the gasket displayed by ViewWindow */
+	public static final int GASKET_SIDES = 5;
+
 	/** Width of the window (from ViewWindow) */
 	public static final int WIDTH = ViewWindow.WINDOW_WIDTH;
 
@@ -27,6 +68,49 @@ public class GraphicsElements {
 
 	// Put your other instance fields here (if you need any)
 	private static final Color[] RECTCOLORS = {new Color(0,85,178), new Color(255,162,0)};
+	private static final Color[] TRIANGLECOLORS = {Color.blue, Color.red, Color.green};
+
+	// size of the area filled by the patterns created without asking the
+	// user anything
+	private int width;
+	private int height;
+
+	/** Create the graphics elements of the window of a ViewWindow */
+	public GraphicsElements() {
+		this(WIDTH, HEIGHT);
+	}
+
+	/**
+	 * Create the graphics elements of a width x height area. The patterns
+	 * created without asking the user anything (createADiskPile(numDisks),
+	 * createACheckeredBoardGrid(rows), ...) fill that area; the lists of
+	 * graphics elements always fill the window of a ViewWindow.
+	 */
+	public GraphicsElements(int width, int height) {
+		if (width <= 0 || height <= 0)
+			throw new IllegalArgumentException("Invalid size: " + width + "x"
+					+ height);
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * Return a PatternBuilder for the area filled by the patterns (the
+	 * patterns created without asking the user anything are created with it)
+	 */
+	public PatternBuilder builder() {
+		return new PatternBuilder().bounds(this.width, this.height);
+	}
+
+	/** Return the width of the area filled by the patterns */
+	public int getWidth() {
+		return this.width;
+	}
+
+	/** Return the height of the area filled by the patterns */
+	public int getHeight() {
+		return this.height;
+	}
 
 	/**
 	 * Create a top view of a pile of disks of decreasing diameters (from bottom
@@ -40,18 +124,15 @@ public class GraphicsElements {
 	 * JOptionPane.showMessageDialog)and ask for it again.
 	 */
 	public ArrayList<Oval> createAPileOfDisks() {
-		
-		Input input = new Input();
-		int numDisks = 0;
-		
 		// get our number of disks from the user
-		do {
-			numDisks = input.readIntDialog("How many disks? (max of " + MAXIMUM_NUMBER_OF_DISKS + "):");
-			if (numDisks <= 0 || numDisks > MAXIMUM_NUMBER_OF_DISKS){
-				JOptionPane.showMessageDialog(null, "Sorry, that number is out of range.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
-			}
-		} while (numDisks <= 0 || numDisks > MAXIMUM_NUMBER_OF_DISKS);
-		
+		return createAPileOfDisks(readNumberOfDisks(MAXIMUM_NUMBER_OF_DISKS));
+	}
+
+	/**
+	 * Create a pile of numDisks disks stored in an ArrayList (as in
+	 * createAPileOfDisks), without asking the user anything
+	 */
+	public ArrayList<Oval> createAPileOfDisks(int numDisks) {
 		// setup
 		// initialize the array list to return
 		ArrayList<Oval> pile = new ArrayList<Oval>(numDisks);
@@ -81,6 +162,54 @@ public class GraphicsElements {
 		return pile;
 	}
 	
+	/**
+	 * Create a top view of a pile of concentric disks of decreasing diameters
+	 * stored as a DiskPile (sorted radii and one color per disk). The pile
+	 * fills the window and the color of each disk is random.<br>
+	 * The number of disks is given by the user (use a dialog box). If that
+	 * number is less than or equal to 0 or greater than
+	 * MAXIMUM_NUMBER_OF_PILE_DISKS, display an error message (use
+	 * JOptionPane.showMessageDialog)and ask for it again.
+	 */
+	public DiskPile createADiskPile() {
+		return createADiskPile(readNumberOfDisks(MAXIMUM_NUMBER_OF_PILE_DISKS));
+	}
+
+	/**
+	 * Create a pile of numDisks disks stored as a DiskPile (as in
+	 * createADiskPile), without asking the user anything
+	 */
+	public DiskPile createADiskPile(int numDisks) {
+		return createADiskPile(numDisks, new Random().nextLong());
+	}
+
+	/**
+	 * Create a pile of numDisks disks stored as a DiskPile (as in
+	 * createADiskPile), without asking the user anything. The random colors
+	 * of the disks are the same for the same seed.<br>
+	 * Precondition: numDisks <= IndexedRaster.MAXIMUM_NUMBER_OF_SLOTS
+	 */
+	public DiskPile createADiskPile(int numDisks, long seed) {
+		return builder().count(numDisks).seed(seed).diskPile();
+	}
+
+	/**
+	 * Ask the user for a number of disks between 1 and maximum (use a dialog
+	 * box). If the number is out of range, display an error message and ask
+	 * for it again.
+	 */
+	public int readNumberOfDisks(int maximum) {
+		Input input = new Input();
+		int numDisks = 0;
+		do {
+			numDisks = input.readIntDialog("How many disks? (max of " + maximum + "):");
+			if (numDisks <= 0 || numDisks > maximum){
+				JOptionPane.showMessageDialog(null, "Sorry, that number is out of range.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
+			}
+		} while (numDisks <= 0 || numDisks > maximum);
+		return numDisks;
+	}
+
 	private Color randomColor(){
 		Random gen = new Random();
 		Color random = new Color(gen.nextInt(255), gen.nextInt(255), gen.nextInt(255));
@@ -97,25 +226,17 @@ public class GraphicsElements {
 	 * error message (use JOptionPane.showMessageDialog)and ask for it again.
 	 */
 	public ArrayList createACheckeredBoard() {
+		return createACheckeredBoard(readNumberOfRows(MAXIMUM_NUMBER_OF_ROWS));
+	}
 
-		boolean valid = false;
-		int rows = 0;
+	/**
+	 * Create a square checkered board of rows x rows Rectangles stored in an
+	 * ArrayList (as in createACheckeredBoard), without asking the user
+	 * anything
+	 */
+	public ArrayList createACheckeredBoard(int rows) {
 		boolean colorSwitch = true;
 
-		while(!valid){
-			//try for valid user input parsed as int
-			try {
-				rows = Integer.parseInt(JOptionPane.showInputDialog(
-						null,
-						"Please enter a value between 1 and " + MAXIMUM_NUMBER_OF_ROWS,
-						JOptionPane.INFORMATION_MESSAGE));
-			}catch(NumberFormatException e){
-				e.printStackTrace();
-				continue;
-			}
-			if(rows > 0 && rows <= MAXIMUM_NUMBER_OF_ROWS) valid = true;
-		}
-
 		// populate new arraylist with Rectangle objects
 		ArrayList<Rectangle> squares = new ArrayList<>();
 
@@ -140,6 +261,44 @@ public class GraphicsElements {
 		return squares;
 	}
 
+	/**
+	 * Create a square checkered board described by its geometry (a
+	 * CheckeredBoard) instead of one Rectangle per square. The board is laid
+	 * out and colored as in createACheckeredBoard.<br>
+	 * The number of rows (=number of columns) is given by the user (use a
+	 * dialog box). If that number is less than or equal to 0 or greater than
+	 * MAXIMUM_NUMBER_OF_GRID_ROWS, ask for it again.
+	 */
+	public CheckeredBoard createACheckeredBoardGrid() {
+		return createACheckeredBoardGrid(readNumberOfRows(MAXIMUM_NUMBER_OF_GRID_ROWS));
+	}
+
+	/**
+	 * Create a square checkered board of rows x rows squares described by its
+	 * geometry (as in createACheckeredBoardGrid), without asking the user
+	 * anything
+	 */
+	public CheckeredBoard createACheckeredBoardGrid(int rows) {
+		return builder().count(rows).palette(RECTCOLORS).checkeredBoard();
+	}
+
+	/**
+	 * Ask the user for a number of rows between 1 and maximum (use a dialog
+	 * box). If the number is out of range, display an error message and ask
+	 * for it again.
+	 */
+	public int readNumberOfRows(int maximum) {
+		Input input = new Input();
+		int rows = 0;
+		do {
+			rows = input.readIntDialog("How many rows? (max of " + maximum + "):");
+			if (rows <= 0 || rows > maximum){
+				JOptionPane.showMessageDialog(null, "Sorry, that number is out of range.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
+			}
+		} while (rows <= 0 || rows > maximum);
+		return rows;
+	}
+
 	/**
 	 * Create a Sierpinski triangle. Create a filled Oval (circle of radius 1)
 	 * for each point of the triangle. Store the Ovals in an ArrayList and
@@ -152,21 +311,17 @@ public class GraphicsElements {
 	 */
 	public ArrayList<Oval> createASierpinskiTriangle() {
 		// get the number of points from the user
+		return createASierpinskiTriangle(readNumberOfPoints(MAXIMUM_NUMBER_OF_POINTS),
+				new Random().nextLong());
+	}
 
-	     int pointCount;
-		do {
-
-	        Input input = new Input();
-			pointCount = input.readIntDialog("How many points in the triangle?");
-	        if (pointCount <= 0 || pointCount > MAXIMUM_NUMBER_OF_POINTS){
-
-	                JOptionPane.showMessageDialog(null, "Sorry, that number is out of range.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
-	            }
-
-	        } while (pointCount <= 0 || pointCount > MAXIMUM_NUMBER_OF_POINTS);
-
-
-	        ArrayList<Oval> points = new ArrayList<Oval>();
+	/**
+	 * Create a Sierpinski triangle of pointCount Ovals stored in an ArrayList
+	 * (as in createASierpinskiTriangle), without asking the user anything.
+	 * The same seed always gives the same points.
+	 */
+	public ArrayList<Oval> createASierpinskiTriangle(int pointCount, long seed) {
+	        ArrayList<Oval> points = new IndexedTriangle();
 
 	        Oval p1 = new Oval(WIDTH / 2, 0, 2, 2, Color.blue, true);
 
@@ -174,7 +329,7 @@ public class GraphicsElements {
 
 	        Oval p3 = new Oval(WIDTH - 1, HEIGHT - 1, 2, 2, Color.blue, true);
 
-	        Random randomGenerator = new Random();
+	        Random randomGenerator = new Random(seed);
 
 	        Oval p = p1;
 
@@ -219,6 +374,196 @@ public class GraphicsElements {
 	        return points;
 	    }
 
+	/**
+	 * Return the pixels covered by the Ovals of a Sierpinski triangle, so that
+	 * getColorInSierpinskiTriangle can answer with a bit lookup
+	 */
+	private static PixelBitmap indexTriangle(List<Oval> graphicsList) {
+		PixelBitmap index = new PixelBitmap(WIDTH, HEIGHT);
+		for (Oval o : graphicsList) {
+			index.setDisk(o.getCenterX(), o.getCenterY(), o.getWidth() / 2);
+		}
+		return index;
+	}
+
+	/**
+	 * The list of Ovals of a Sierpinski triangle created by
+	 * createASierpinskiTriangle, with the pixels they cover. The pixels are
+	 * found on the first hit test and found again after the list changes
+	 * (elements added, removed or replaced with set). Moving an Oval of the
+	 * list is not seen. The pixels and the state of the list they were found
+	 * from are kept together, so several threads can test the same triangle.
+	 */
+	private static class IndexedTriangle extends ArrayList<Oval> {
+
+		private static final long serialVersionUID = 1L;
+
+		// the pixels covered by the Ovals, and the modCount of the list when
+		// they were found (null until the first hit test or after a set)
+		private transient volatile Index index;
+
+		/** Return the pixels covered by the Ovals of the list */
+		PixelBitmap getPixels() {
+			Index index = this.index;
+			int modCount = this.modCount;
+			if (index == null || index.modCount != modCount) {
+				index = new Index(indexTriangle(this), modCount);
+				this.index = index;
+			}
+			return index.pixels;
+		}
+
+		public Oval set(int i, Oval o) {
+			Oval old = super.set(i, o);
+			this.index = null;
+			return old;
+		}
+
+		/** The pixels covered by the Ovals of a version of the list */
+		private static class Index {
+
+			private final PixelBitmap pixels;
+
+			private final int modCount;
+
+			Index(PixelBitmap pixels, int modCount) {
+				this.pixels = pixels;
+				this.modCount = modCount;
+			}
+		}
+	}
+
+	/**
+	 * Create a Sierpinski triangle stored as a point cloud. The points are
+	 * computed as in createASierpinskiTriangle, but their coordinates are kept
+	 * in a SierpinskiPoints instead of one Oval per point, which allows up to
+	 * MAXIMUM_NUMBER_OF_CLOUD_POINTS points.<br>
+	 * The number of points is given by the user (use a dialog box). If that
+	 * number is less than or equal to 0 or greater than
+	 * MAXIMUM_NUMBER_OF_CLOUD_POINTS, display an error message (use
+	 * JOptionPane.showMessageDialog)and ask for it again.
+	 */
+	public SierpinskiPoints createASierpinskiPointCloud() {
+		int pointCount = readNumberOfPoints(MAXIMUM_NUMBER_OF_CLOUD_POINTS);
+
+		// small triangles are not worth the threads
+		int threads = 1;
+		if (pointCount >= PARALLEL_GENERATION_THRESHOLD)
+			threads = Runtime.getRuntime().availableProcessors();
+		return createASierpinskiPointCloud(pointCount, new Random().nextLong(), threads);
+	}
+
+	/**
+	 * Create a Sierpinski triangle of pointCount points stored as a point
+	 * cloud, without asking the user anything. The points are generated by
+	 * threads chaos game walks run in parallel (see ChaosGame). The same seed
+	 * and number of threads always give the same points.
+	 */
+	public SierpinskiPoints createASierpinskiPointCloud(int pointCount, long seed, int threads) {
+		return builder().count(pointCount).seed(seed).threads(threads)
+				.palette(TRIANGLECOLORS).sierpinskiPoints();
+	}
+
+	/**
+	 * Create a Sierpinski triangle of pointCount points stored as a point
+	 * cloud, without asking the user anything, and let the caller watch it
+	 * grow. The points are the same as with createASierpinskiPointCloud(
+	 * pointCount, seed, threads), with one thread per processor from
+	 * PARALLEL_GENERATION_THRESHOLD points. They are added to the cloud in
+	 * batches of about POINT_CLOUD_BATCH_SIZE points (each batch continues
+	 * each of the walks). After each batch, listener is given the cloud (from
+	 * the thread calling this method): the new points are visible to all of
+	 * the threads. If listener returns false, no more points are added and
+	 * the partial cloud is returned.
+	 */
+	public SierpinskiPoints createASierpinskiPointCloud(int pointCount, long seed,
+			Predicate<SierpinskiPoints> listener) {
+		// small triangles are not worth the threads
+		int threads = 1;
+		if (pointCount >= PARALLEL_GENERATION_THRESHOLD)
+			threads = Runtime.getRuntime().availableProcessors();
+		return builder().count(pointCount).seed(seed).threads(threads)
+				.palette(TRIANGLECOLORS)
+				.sierpinskiPoints(POINT_CLOUD_BATCH_SIZE, listener);
+	}
+
+	/**
+	 * Create a Sierpinski triangle stored as a density: the chaos game of
+	 * createASierpinskiTriangle increments a counter per pixel instead of
+	 * storing the points, so the memory used only depends on the size of the
+	 * window. With DENSITY_SHADING_THRESHOLD points or more, the pixels are
+	 * shaded with the log of their count.<br>
+	 * The number of points is given by the user (use a dialog box). If that
+	 * number is less than or equal to 0 or greater than
+	 * MAXIMUM_NUMBER_OF_DENSITY_POINTS, display an error message (use
+	 * JOptionPane.showMessageDialog)and ask for it again.
+	 */
+	public DensityBuffer createASierpinskiDensity() {
+		int pointCount = readNumberOfPoints(MAXIMUM_NUMBER_OF_DENSITY_POINTS);
+		return createASierpinskiDensity(pointCount, new Random().nextLong(),
+				pointCount >= DENSITY_SHADING_THRESHOLD, density -> true);
+	}
+
+	/**
+	 * Create a Sierpinski triangle of pointCount points stored as a density,
+	 * without asking the user anything, and let the caller watch it grow. The
+	 * points are added in batches of DENSITY_BATCH_SIZE points (each batch is
+	 * a chaos game walk from the first corner). After each batch, listener is
+	 * given the density with the new points published. If listener returns
+	 * false, no more points are added and the partial density is returned.
+	 */
+	public DensityBuffer createASierpinskiDensity(long pointCount, long seed,
+			boolean shaded, Predicate<DensityBuffer> listener) {
+		return builder().count(pointCount).seed(seed).palette(TRIANGLECOLORS)
+				.sierpinskiDensity(shaded ? DENSITY_SHADES : 1, DENSITY_BATCH_SIZE,
+						listener);
+	}
+
+	/**
+	 * Create the fractal of an iterated function system (e.g. the Barnsley
+	 * fern, see IteratedFunctionSystem) stored as a density of pointCount
+	 * points, shaded as createASierpinskiDensity, without asking the user
+	 * anything. The points are generated on all of the cores and added in
+	 * batches of FRACTAL_BATCH_SIZE points. After each batch, listener is
+	 * given the density with the new points published. If listener returns
+	 * false, no more points are added and the partial density is returned.
+	 */
+	public DensityBuffer createAFractalDensity(IteratedFunctionSystem system,
+			long pointCount, long seed, Predicate<DensityBuffer> listener) {
+		return builder().count(pointCount).seed(seed).palette(TRIANGLECOLORS)
+				.threads(Runtime.getRuntime().availableProcessors())
+				.fractalDensity(system,
+						pointCount >= DENSITY_SHADING_THRESHOLD ? DENSITY_SHADES
+								: 1, FRACTAL_BATCH_SIZE, listener);
+	}
+
+	/**
+	 * Create an exact Sierpinski triangle, rasterized directly over the
+	 * pixels of the window from the corners of createASierpinskiTriangle (see
+	 * SierpinskiRaster). There are no points, so nothing is asked to the user
+	 * and the triangle is the same every time.
+	 */
+	public SierpinskiRaster createAnExactSierpinskiTriangle() {
+		return builder().palette(TRIANGLECOLORS).sierpinskiRaster();
+	}
+
+	/**
+	 * Ask the user for a number of points between 1 and maximum (use a dialog
+	 * box). If the number is out of range, display an error message and ask
+	 * for it again.
+	 */
+	public int readNumberOfPoints(int maximum) {
+		Input input = new Input();
+		int pointCount;
+		do {
+			pointCount = input.readIntDialog("How many points in the triangle? (max of " + maximum + "):");
+			if (pointCount <= 0 || pointCount > maximum) {
+				JOptionPane.showMessageDialog(null, "Sorry, that number is out of range.", "Invalid Input", JOptionPane.ERROR_MESSAGE);
+			}
+		} while (pointCount <= 0 || pointCount > maximum);
+		return pointCount;
+	}
+
 	/**
 	 * Rotate the colors in the pile of disks. Set the color of each disk to the
 	 * color of the disk just above it. For the top disk, set its color to the
@@ -248,6 +593,16 @@ public class GraphicsElements {
 		return graphicsList;
 	}
 
+	/**
+	 * Rotate the colors in a pile of disks stored as a DiskPile (same rule as
+	 * rotateColorsInPileOfDisks)<br>
+	 * Precondition: pile describes a pile of disks
+	 */
+	public DiskPile rotateColorsInPileOfDisks(DiskPile pile) {
+		pile.rotateColors();
+		return pile;
+	}
+
 	/**
 	 * Flip the 2 colors of the checkboard<br>
 	 * Precondition: graphicsList describes a checkered board
@@ -261,6 +616,15 @@ public class GraphicsElements {
 		return graphicsList;
 	}
 
+	/**
+	 * Flip the 2 colors of a checkered board described by its geometry<br>
+	 * Precondition: board describes a checkered board
+	 */
+	public CheckeredBoard flipColorsInCheckeredBoard(CheckeredBoard board) {
+		board.flipColors();
+		return board;
+	}
+
 	/**
 	 * Change the color of the Sierpinski triangle (all circles should change to
 	 * the same color). Switch between 3 colors (e.g. blue->red->green, if the
@@ -273,21 +637,7 @@ public class GraphicsElements {
 
 	        if (!graphicsList.isEmpty()) {
 
-	            Color oldColor = graphicsList.get(0).getColor();
-
-	            if (oldColor == Color.blue) {
-
-	                newColor = Color.red;
-
-	            } else if (oldColor == Color.red) {
-
-	                newColor = Color.green;
-
-	            } else if (oldColor == Color.green) {
-
-	                newColor = Color.blue;
-
-	            }
+	            newColor = nextTriangleColor(graphicsList.get(0).getColor());
 
 	        }    
 
@@ -300,6 +650,51 @@ public class GraphicsElements {
 
 	    }
 
+	/**
+	 * Change the color of the Sierpinski triangle stored as a point cloud.
+	 * Switch between the same 3 colors as changeColorsInSierpinskiTriangle.
+	 * The points get their color from a palette, so this only rotates the
+	 * palette, whatever the number of points.<br>
+	 * Precondition: points describes a Sierpinski triangle
+	 */
+	public SierpinskiPoints changeColorsInSierpinskiTriangle(SierpinskiPoints points) {
+		points.changeColors();
+		return points;
+	}
+
+	/**
+	 * Change the color of an exact Sierpinski triangle. Switch between the
+	 * same 3 colors as changeColorsInSierpinskiTriangle (a rotation of its
+	 * palette).<br>
+	 * Precondition: triangle describes a Sierpinski triangle
+	 */
+	public SierpinskiRaster changeColorsInSierpinskiTriangle(SierpinskiRaster triangle) {
+		triangle.changeColors();
+		return triangle;
+	}
+
+	/**
+	 * Change the color of a Sierpinski triangle stored as a density. Switch
+	 * between the same 3 colors as changeColorsInSierpinskiTriangle (a
+	 * rotation of its palette).<br>
+	 * Precondition: density describes a Sierpinski triangle
+	 */
+	public DensityBuffer changeColorsInSierpinskiTriangle(DensityBuffer density) {
+		density.changeColors();
+		return density;
+	}
+
+	/** Return the color that follows oldColor in the blue->red->green cycle */
+	private Color nextTriangleColor(Color oldColor) {
+		if (oldColor == Color.blue) {
+			return Color.red;
+		} else if (oldColor == Color.red) {
+			return Color.green;
+		}
+		// green, or any other color, goes back to blue
+		return Color.blue;
+	}
+
 	/**
 	 * Return the color at location (x,y) in the pile of disks. If (x,y) is not
 	 * part of the pile of disks, return null.<br>
@@ -331,6 +726,17 @@ public class GraphicsElements {
 		return null;
 	}
 
+	/**
+	 * Return the color at location (x,y) in a pile of disks stored as a
+	 * DiskPile. If (x,y) is not part of the pile of disks, return null. This
+	 * takes one distance computation and a lookup in the table of the disks
+	 * on top (see DiskPile).<br>
+	 * Precondition: pile describes a pile of disks
+	 */
+	public Color getColorInPileOfDisks(int x, int y, DiskPile pile) {
+		return pile.getColorAt(x, y);
+	}
+
 	/**
 	 * Return the color at location (x,y) in the checkered board. If (x,y) is
 	 * not part of the board, return null.<br>
@@ -352,6 +758,16 @@ public class GraphicsElements {
 		return null;
 	}
 
+	/**
+	 * Return the color at location (x,y) in a checkered board described by
+	 * its geometry. If (x,y) is not part of the board, return null. The
+	 * square is found by integer division, whatever the number of rows.<br>
+	 * Precondition: board describes a checkered board
+	 */
+	public Color getColorInCheckeredBoard(int x, int y, CheckeredBoard board) {
+		return board.getColorAt(x, y);
+	}
+
 	/**
 	 * Return the color at location (x,y) in the Sierpinski triangle. If (x,y)
 	 * is not part of the pile of disks, return null.<br>
@@ -359,26 +775,55 @@ public class GraphicsElements {
 	 */
 	public Color getColorInSierpinskiTriangle(int x, int y,
 			ArrayList<Oval> graphicsList) {
-		for (Oval o : graphicsList) {
-
-            int centerX = o.getCenterX();
-
-            int centerY = o.getCenterY();
-
-            double diffX = x - centerX;
-
-            double diffY = y - centerY;
-
-            double dist = (x * x) + (y * y);
-
+		if (graphicsList.isEmpty())
+			return null;
+
+		// a triangle created by createASierpinskiTriangle keeps its pixels
+		// with it (all of the points have the same color)
+		if (graphicsList instanceof IndexedTriangle) {
+			if (((IndexedTriangle) graphicsList).getPixels().get(x, y))
+				return graphicsList.get(0).getColor();
+			return null;
+		}
 
-            if (dist <= 1.0) {
+		// any other list is scanned, since it may change without notice
+		for (Oval o : graphicsList) {
+			int dx = x - o.getCenterX();
+			int dy = y - o.getCenterY();
+			int radius = o.getWidth() / 2;
+			if (dx * dx + dy * dy <= radius * radius)
+				return o.getColor();
+		}
+		return null;
+	}
 
-                return o.getColor();
+	/**
+	 * Return the color at location (x,y) in the Sierpinski triangle stored as
+	 * a point cloud. If (x,y) is not part of the triangle, return null.<br>
+	 * Precondition: points describes a Sierpinski triangle
+	 */
+	public Color getColorInSierpinskiTriangle(int x, int y, SierpinskiPoints points) {
+		if (points.contains(x, y))
+			return points.getColor();
+		return null;
+	}
 
-            }
+	/**
+	 * Return the color at location (x,y) in an exact Sierpinski triangle (a
+	 * single bit lookup). If (x,y) is not part of the triangle, return null.<br>
+	 * Precondition: triangle describes a Sierpinski triangle
+	 */
+	public Color getColorInSierpinskiTriangle(int x, int y, SierpinskiRaster triangle) {
+		return triangle.getColorAt(x, y);
+	}
 
-        }
-        return null;
+	/**
+	 * Return the color at location (x,y) in a Sierpinski triangle stored as a
+	 * density (the shade of the pixel). If (x,y) is not part of the triangle,
+	 * return null.<br>
+	 * Precondition: density describes a Sierpinski triangle
+	 */
+	public Color getColorInSierpinskiTriangle(int x, int y, DensityBuffer density) {
+		return density.getColorAt(x, y);
 	}
-}
\ No newline at end of file
+}
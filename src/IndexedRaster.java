@@ -0,0 +1,157 @@
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An image made of palette slots instead of colors.<br>
+ * Each pixel holds 1 + the palette slot of the element drawn there, or
+ * BACKGROUND. The raster is rasterized once; to display it with the current
+ * colors of a Palette, toImage wraps the same pixels with an IndexColorModel
+ * built from the palette, so recoloring never touches the pixels. A palette
+ * never changes, so the image made for a palette is kept and given again
+ * for the same palette: painting the raster again with the same colors
+ * allocates nothing.
+ */
+
+public class IndexedRaster {
+
+	/** Value of the pixels where nothing is drawn (transparent) */
+	public static final int BACKGROUND = 0;
+
+	/** Maximum number of palette slots an IndexedRaster can refer to */
+	public static final int MAXIMUM_NUMBER_OF_SLOTS = 0xFFFF;
+
+	/**
+	 * Number of colors of the color models of the images kept by a raster
+	 * (256 KB of colors, see toImage)
+	 */
+	public static final int MAXIMUM_CACHED_COLORS = 1 << 16;
+
+	// size of the raster
+	private int width;
+
+	private int height;
+
+	// the pixels, row after row (shared with raster)
+	private short[] pixels;
+
+	private WritableRaster raster;
+
+	// the images of the raster made for each palette, and the number of
+	// colors of their color models
+	private Map<Palette, BufferedImage> images =
+			new HashMap<Palette, BufferedImage>();
+
+	private int cachedColors;
+
+	/** Create a width x height raster with all of its pixels in BACKGROUND */
+	public IndexedRaster(int width, int height) {
+		this.width = width;
+		this.height = height;
+		DataBufferUShort buffer = new DataBufferUShort(width * height);
+		this.raster = Raster.createInterleavedRaster(buffer, width, height,
+				width, 1, new int[] { 0 }, null);
+		this.pixels = buffer.getData();
+	}
+
+	/** Return the width of this raster */
+	public int getWidth() {
+		return this.width;
+	}
+
+	/** Return the height of this raster */
+	public int getHeight() {
+		return this.height;
+	}
+
+	/** Return the number of bytes of the pixels of this raster */
+	public long getBytes() {
+		return 2L * this.pixels.length;
+	}
+
+	/** Return the value of the pixel at (x,y) */
+	public int get(int x, int y) {
+		return this.pixels[y * this.width + x] & 0xFFFF;
+	}
+
+	/** Set the pixel at (x,y) to value. Do nothing if (x,y) is outside. */
+	public void set(int x, int y, int value) {
+		if (x < 0 || x >= this.width || y < 0 || y >= this.height)
+			return;
+		this.pixels[y * this.width + x] = (short) value;
+	}
+
+	/**
+	 * Set the pixels from (x0,y) included to (x1,y) excluded to value. The
+	 * part of the span outside of the raster is ignored.
+	 */
+	public void fillSpan(int y, int x0, int x1, int value) {
+		if (y < 0 || y >= this.height)
+			return;
+		x0 = Math.max(x0, 0);
+		x1 = Math.min(x1, this.width);
+		if (x0 < x1)
+			Arrays.fill(this.pixels, y * this.width + x0, y * this.width + x1,
+					(short) value);
+	}
+
+	/** Set all of the pixels to BACKGROUND */
+	public void clear() {
+		Arrays.fill(this.pixels, (short) BACKGROUND);
+	}
+
+	/**
+	 * Set the pixels from (left, top) included to (right, bottom) excluded
+	 * to BACKGROUND
+	 */
+	public void clear(int left, int top, int right, int bottom) {
+		for (int y = top; y < bottom; y++) {
+			fillSpan(y, left, right, BACKGROUND);
+		}
+	}
+
+	/**
+	 * Return an image of this raster where a pixel of value v has the color of
+	 * slot v - 1 of palette (BACKGROUND pixels are transparent). The image
+	 * shares its pixels with this raster: no pixel is copied or converted.
+	 * The images of the last palettes are kept (as long as their color models
+	 * have MAXIMUM_CACHED_COLORS colors in all), so the same palette gives the
+	 * same image without building its color model again.<br>
+	 * Precondition: palette.size() <= MAXIMUM_NUMBER_OF_SLOTS
+	 */
+	public synchronized BufferedImage toImage(Palette palette) {
+		BufferedImage image = this.images.get(palette);
+		if (image != null)
+			return image;
+		int n = palette.size() + 1;
+		byte[] r = new byte[n];
+		byte[] g = new byte[n];
+		byte[] b = new byte[n];
+		byte[] a = new byte[n];
+		for (int slot = 0; slot < palette.size(); slot++) {
+			Color c = palette.get(slot);
+			r[slot + 1] = (byte) c.getRed();
+			g[slot + 1] = (byte) c.getGreen();
+			b[slot + 1] = (byte) c.getBlue();
+			a[slot + 1] = (byte) c.getAlpha();
+		}
+		// the smallest color model of unsigned shorts (9 to 16 bits) with n
+		// colors: its table has 2^bits colors
+		int bits = Math.max(9, 32 - Integer.numberOfLeadingZeros(n - 1));
+		IndexColorModel colorModel = new IndexColorModel(bits, n, r, g, b, a);
+		image = new BufferedImage(colorModel, this.raster, false, null);
+		if (this.cachedColors + (1 << bits) > MAXIMUM_CACHED_COLORS) {
+			this.images.clear();
+			this.cachedColors = 0;
+		}
+		this.images.put(palette, image);
+		this.cachedColors += 1 << bits;
+		return image;
+	}
+}
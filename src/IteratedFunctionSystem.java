@@ -0,0 +1,389 @@
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+
+/**
+ * An iterated function system: affine maps (see AffineMap), each chosen with
+ * its probability, whose attractor is drawn with the chaos game. Starting
+ * from any point, a randomly chosen map is applied again and again; after a
+ * few steps, the points reached are on the attractor. With the 3 maps that
+ * move a point halfway towards the corners of a triangle, the attractor is
+ * the Sierpinski triangle (see ChaosGame). Other maps give the Barnsley fern,
+ * the Sierpinski carpet or the gasket of any regular polygon.<br>
+ * The attractor is scaled to fill a width x height area (keeping its
+ * proportions, with y going up), and its points are counted in a
+ * DensityBuffer. The points are generated by several threads at once. Each
+ * thread walks on its own, with a generator split from the seed, and counts
+ * its points in its own array, without any lock or allocation. The arrays are
+ * added to the density after each batch of points. A map is chosen with a
+ * single random int: it indexes a table of CHOICE_TABLE_SIZE maps where each
+ * map appears in proportion to its probability.
+ */
+
+public class IteratedFunctionSystem {
+
+	// number of bits of the index of the table used to choose a map
+	private static final int CHOICE_BITS = 12;
+
+	/**
+	 * Number of entries of the table used to choose a map (the probabilities
+	 * are rounded to multiples of 1 / CHOICE_TABLE_SIZE)
+	 */
+	public static final int CHOICE_TABLE_SIZE = 1 << CHOICE_BITS;
+
+	/**
+	 * Number of points of a walk dropped before its points are counted (the
+	 * walk is then on the attractor)
+	 */
+	public static final int SKIPPED_POINTS = 64;
+
+	// number of points walked to find the bounds of the attractor
+	private static final int BOUNDS_POINTS = 1 << 18;
+
+	/**
+	 * Maximum number of points a walk counts between two additions to the
+	 * density: a pixel of the walk counts at most that many points, so its
+	 * int count never wraps, whatever the batch size
+	 */
+	public static final int MAXIMUM_WALK_BATCH = 1 << 30;
+
+	// the maps
+	private AffineMap[] maps;
+
+	// the coefficients a, b, c, d, e and f of each map, map after map
+	private double[] coefficients;
+
+	// the index in coefficients of the map chosen by each entry
+	private int[] choices;
+
+	// bounding box of the attractor
+	private double minX;
+
+	private double minY;
+
+	private double maxX;
+
+	private double maxY;
+
+	/**
+	 * Create the system of the given maps. Each map is chosen in proportion
+	 * to its probability.<br>
+	 * Precondition: the maps are contractions (their attractor is bounded)
+	 */
+	public IteratedFunctionSystem(AffineMap... maps) {
+		if (maps.length == 0)
+			throw new IllegalArgumentException("No map");
+		this.maps = maps.clone();
+		this.coefficients = new double[6 * maps.length];
+		double total = 0;
+		for (int i = 0; i < maps.length; i++) {
+			AffineMap m = maps[i];
+			this.coefficients[6 * i] = m.getA();
+			this.coefficients[6 * i + 1] = m.getB();
+			this.coefficients[6 * i + 2] = m.getC();
+			this.coefficients[6 * i + 3] = m.getD();
+			this.coefficients[6 * i + 4] = m.getE();
+			this.coefficients[6 * i + 5] = m.getF();
+			total += m.getProbability();
+		}
+		if (!(total > 0) || Double.isInfinite(total))
+			throw new IllegalArgumentException(
+					"The probabilities add up to " + total);
+		this.choices = createTable(this.maps, total);
+		findBounds();
+	}
+
+	/** Return the Barnsley fern (4 maps) */
+	public static IteratedFunctionSystem fern() {
+		return new IteratedFunctionSystem(
+				new AffineMap(0, 0, 0, 0.16, 0, 0, 0.01),
+				new AffineMap(0.85, 0.04, -0.04, 0.85, 0, 1.6, 0.85),
+				new AffineMap(0.2, -0.26, 0.23, 0.22, 0, 1.6, 0.07),
+				new AffineMap(-0.15, 0.28, 0.26, 0.24, 0, 0.44, 0.07));
+	}
+
+	/**
+	 * Return the Sierpinski carpet (8 maps: the unit square minus its middle
+	 * ninth, again and again)
+	 */
+	public static IteratedFunctionSystem carpet() {
+		AffineMap[] maps = new AffineMap[8];
+		int n = 0;
+		for (int row = 0; row < 3; row++) {
+			for (int column = 0; column < 3; column++) {
+				if (row != 1 || column != 1)
+					maps[n++] = new AffineMap(1.0 / 3, 0, 0, 1.0 / 3,
+							column / 3.0, row / 3.0, 1);
+			}
+		}
+		return new IteratedFunctionSystem(maps);
+	}
+
+	/**
+	 * Return the gasket of the regular polygon with the given number of sides
+	 * (the Sierpinski triangle for 3 sides, a pentaflake for 5 sides): one
+	 * map per corner, that shrinks the polygon towards that corner just
+	 * enough for the shrunk polygons to touch without overlapping
+	 */
+	public static IteratedFunctionSystem gasket(int sides) {
+		if (sides < 3)
+			throw new IllegalArgumentException("Invalid number of sides: "
+					+ sides);
+		double sum = 1;
+		for (int k = 1; k <= sides / 4; k++) {
+			sum += Math.cos(2 * Math.PI * k / sides);
+		}
+		double ratio = 1 / (2 * sum);
+		AffineMap[] maps = new AffineMap[sides];
+		for (int k = 0; k < sides; k++) {
+			// the first corner is at the top
+			double angle = Math.PI / 2 + 2 * Math.PI * k / sides;
+			maps[k] = AffineMap.towards(Math.cos(angle), Math.sin(angle),
+					ratio, 1);
+		}
+		return new IteratedFunctionSystem(maps);
+	}
+
+	/** Return the number of maps */
+	public int size() {
+		return this.maps.length;
+	}
+
+	/** Return the i-th map */
+	public AffineMap getMap(int i) {
+		return this.maps[i];
+	}
+
+	/**
+	 * Return the table of CHOICE_TABLE_SIZE indexes in coefficients, where
+	 * each map has a number of entries proportional to its probability
+	 * (rounded with the largest remainders)
+	 */
+	private static int[] createTable(AffineMap[] maps, double total) {
+		int[] entries = new int[maps.length];
+		double[] remainders = new double[maps.length];
+		int used = 0;
+		for (int i = 0; i < maps.length; i++) {
+			double share = maps[i].getProbability() / total
+					* CHOICE_TABLE_SIZE;
+			entries[i] = (int) share;
+			remainders[i] = share - entries[i];
+			used += entries[i];
+		}
+		// the entries left go to the maps with the largest remainders
+		for (; used < CHOICE_TABLE_SIZE; used++) {
+			int largest = 0;
+			for (int i = 1; i < maps.length; i++) {
+				if (remainders[i] > remainders[largest])
+					largest = i;
+			}
+			entries[largest]++;
+			remainders[largest] = -1;
+		}
+		int[] table = new int[CHOICE_TABLE_SIZE];
+		int next = 0;
+		for (int i = 0; i < maps.length; i++) {
+			Arrays.fill(table, next, next + entries[i], 6 * i);
+			next += entries[i];
+		}
+		return table;
+	}
+
+	/**
+	 * Find the bounding box of the attractor from the points of a walk, with
+	 * a margin of 1% on each side for the points the walk missed
+	 */
+	private void findBounds() {
+		double[] m = this.coefficients;
+		SplittableRandom random = new SplittableRandom(0);
+		double x = 0;
+		double y = 0;
+		this.minX = this.minY = Double.POSITIVE_INFINITY;
+		this.maxX = this.maxY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < SKIPPED_POINTS + BOUNDS_POINTS; i++) {
+			int k = this.choices[random.nextInt() >>> (32 - CHOICE_BITS)];
+			double newX = m[k] * x + m[k + 1] * y + m[k + 4];
+			y = m[k + 2] * x + m[k + 3] * y + m[k + 5];
+			x = newX;
+			if (i >= SKIPPED_POINTS) {
+				this.minX = Math.min(this.minX, x);
+				this.minY = Math.min(this.minY, y);
+				this.maxX = Math.max(this.maxX, x);
+				this.maxY = Math.max(this.maxY, y);
+			}
+		}
+		if (!(this.maxX - this.minX < Double.POSITIVE_INFINITY)
+				|| !(this.maxY - this.minY < Double.POSITIVE_INFINITY))
+			throw new IllegalArgumentException(
+					"The attractor of the maps is not bounded");
+		double marginX = Math.max(this.maxX - this.minX, 1e-9) / 100;
+		double marginY = Math.max(this.maxY - this.minY, 1e-9) / 100;
+		this.minX -= marginX;
+		this.maxX += marginX;
+		this.minY -= marginY;
+		this.maxY += marginY;
+	}
+
+	/**
+	 * Add pointCount points of the attractor to density, scaled to fill its
+	 * area, with the given number of threads. Each thread walks its own share
+	 * of pointCount points, so for a given seed and number of threads, the
+	 * points are always the same (whatever the batch size). The points are
+	 * added in batches of about batchSize points (batchSize / threads points
+	 * of each walk, at most MAXIMUM_WALK_BATCH); after each batch, listener is
+	 * given the density with the new points published. If listener returns
+	 * false or the calling thread is interrupted, no more points are added.
+	 */
+	public void generate(DensityBuffer density, long pointCount, long seed,
+			int threads, long batchSize, Predicate<DensityBuffer> listener) {
+		if (pointCount < 0 || threads <= 0 || batchSize <= 0)
+			throw new IllegalArgumentException("Invalid request: "
+					+ pointCount + " points with " + threads
+					+ " threads in batches of " + batchSize);
+
+		// one walk per thread, with a generator split in order from the seed
+		SplittableRandom root = new SplittableRandom(seed);
+		Walk[] walks = new Walk[threads];
+		for (int i = 0; i < threads; i++) {
+			walks[i] = new Walk(root.split(), density.getWidth(),
+					density.getHeight());
+		}
+		// the share of each walk, and its part of a batch
+		long[] remaining = new long[threads];
+		for (int i = 0; i < threads; i++) {
+			remaining[i] = pointCount / threads
+					+ ((i < pointCount % threads) ? 1 : 0);
+		}
+		long part = Math.max(1, Math.min(batchSize / threads,
+				MAXIMUM_WALK_BATCH));
+		List<Walk> tasks = Arrays.asList(walks);
+		ExecutorService executor = (threads == 1) ? null : Executors
+				.newFixedThreadPool(threads);
+		try {
+			// the first walk has the largest share
+			while (remaining[0] > 0) {
+				for (int i = 0; i < threads; i++) {
+					walks[i].pointCount = Math.min(part, remaining[i]);
+					remaining[i] -= walks[i].pointCount;
+				}
+				if (executor == null) {
+					walks[0].call();
+				} else {
+					for (Future<Void> result : executor.invokeAll(tasks)) {
+						result.get();
+					}
+				}
+				// merge the counts of the walks
+				for (Walk walk : walks) {
+					density.addAll(IntBuffer.wrap(walk.counts));
+					Arrays.fill(walk.counts, 0);
+				}
+				density.publish();
+				if (!listener.test(density))
+					break;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			if (executor != null)
+				executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * The walk of a thread: its generator, the point it has reached and the
+	 * number of points it has counted on each pixel of the area since the
+	 * last merge
+	 */
+	private class Walk implements Callable<Void> {
+
+		private SplittableRandom random;
+
+		private double x;
+
+		private double y;
+
+		// size of the area, row after row
+		private int width;
+
+		private int height;
+
+		// points counted on each pixel since the last merge (at most
+		// pointCount, see MAXIMUM_WALK_BATCH)
+		private int[] counts;
+
+		// how the attractor is scaled to the area: pixel (left + x scale,
+		// top - y scale)
+		private double scale;
+
+		private double left;
+
+		private double top;
+
+		// number of points of the next batch
+		private long pointCount;
+
+		Walk(SplittableRandom random, int width, int height) {
+			this.random = random;
+			this.width = width;
+			this.height = height;
+			this.counts = new int[width * height];
+			double sizeX = IteratedFunctionSystem.this.maxX
+					- IteratedFunctionSystem.this.minX;
+			double sizeY = IteratedFunctionSystem.this.maxY
+					- IteratedFunctionSystem.this.minY;
+			this.scale = Math.min(width / sizeX, height / sizeY);
+			this.left = (width - sizeX * this.scale) / 2
+					- IteratedFunctionSystem.this.minX * this.scale;
+			this.top = (height - sizeY * this.scale) / 2
+					+ IteratedFunctionSystem.this.maxY * this.scale;
+			// get on the attractor
+			walk(SKIPPED_POINTS, false);
+		}
+
+		public Void call() {
+			walk(this.pointCount, true);
+			return null;
+		}
+
+		// walk n points, and count them if count is true
+		private void walk(long n, boolean count) {
+			double[] m = IteratedFunctionSystem.this.coefficients;
+			int[] choices = IteratedFunctionSystem.this.choices;
+			int[] counts = this.counts;
+			SplittableRandom random = this.random;
+			int width = this.width;
+			int height = this.height;
+			double scale = this.scale;
+			double left = this.left;
+			double top = this.top;
+			double x = this.x;
+			double y = this.y;
+			for (long i = 0; i < n; i++) {
+				int k = choices[random.nextInt() >>> (32 - CHOICE_BITS)];
+				double newX = m[k] * x + m[k + 1] * y + m[k + 4];
+				y = m[k + 2] * x + m[k + 3] * y + m[k + 5];
+				x = newX;
+				if (!count)
+					continue;
+				int px = (int) (left + x * scale);
+				int py = (int) (top - y * scale);
+				if (px >= 0 && px < width && py >= 0 && py < height)
+					counts[py * width + px]++;
+			}
+			this.x = x;
+			this.y = y;
+		}
+	}
+}
@@ -0,0 +1,110 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies, in nanoseconds, that can be recorded by several
+ * threads at once without locking.<br>
+ * Each power of 2 is split into SUB_BUCKETS buckets, so a percentile is
+ * known within 1 / SUB_BUCKETS of its value (12.5%) with a fixed number of
+ * counters, whatever the number of latencies recorded. The largest latency
+ * is kept exactly.
+ */
+
+public class LatencyHistogram {
+
+	/** Number of buckets per power of 2 */
+	public static final int SUB_BUCKETS = 8;
+
+	// log2(SUB_BUCKETS)
+	private static final int SUB_BITS = 3;
+
+	// counts[i] is the number of latencies in bucket i (see bucket)
+	private AtomicLongArray counts = new AtomicLongArray((64 - SUB_BITS)
+			* SUB_BUCKETS);
+
+	private AtomicLong count = new AtomicLong();
+
+	private AtomicLong max = new AtomicLong();
+
+	/** Record a latency of nanos nanoseconds (negative latencies count as 0) */
+	public void record(long nanos) {
+		nanos = Math.max(nanos, 0);
+		this.counts.incrementAndGet(bucket(nanos));
+		this.count.incrementAndGet();
+		this.max.accumulateAndGet(nanos, Math::max);
+	}
+
+	// the values below SUB_BUCKETS have a bucket each; past that, the bucket
+	// is given by the position of the highest bit and the SUB_BITS bits after
+	// it
+	private static int bucket(long nanos) {
+		if (nanos < SUB_BUCKETS)
+			return (int) nanos;
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	// the largest value of bucket i
+	private static long highestValue(int i) {
+		if (i < SUB_BUCKETS)
+			return i;
+		int exponent = i / SUB_BUCKETS + SUB_BITS - 1;
+		long sub = i % SUB_BUCKETS;
+		return ((SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+	}
+
+	/** Return the number of latencies recorded */
+	public long getCount() {
+		return this.count.get();
+	}
+
+	/** Return the largest latency recorded, in nanoseconds (0 if none) */
+	public long getMaxNanos() {
+		return this.max.get();
+	}
+
+	/**
+	 * Return the latency under which a fraction p of the latencies recorded
+	 * are, in nanoseconds (0 if none)<br>
+	 * Precondition: 0 <= p <= 1
+	 */
+	public long getPercentileNanos(double p) {
+		long total = 0;
+		for (int i = 0; i < this.counts.length(); i++) {
+			total += this.counts.get(i);
+		}
+		long rank = Math.max((long) Math.ceil(p * total), 1);
+		long seen = 0;
+		for (int i = 0; i < this.counts.length(); i++) {
+			seen += this.counts.get(i);
+			if (seen >= rank)
+				return Math.min(highestValue(i), getMaxNanos());
+		}
+		return 0;
+	}
+
+	/** Return the median latency, in microseconds */
+	public double getP50Micros() {
+		return getPercentileNanos(0.50) / 1000.0;
+	}
+
+	/** Return the 99th percentile of the latencies, in microseconds */
+	public double getP99Micros() {
+		return getPercentileNanos(0.99) / 1000.0;
+	}
+
+	/** Return the largest latency, in microseconds */
+	public double getMaxMicros() {
+		return getMaxNanos() / 1000.0;
+	}
+
+	/** Forget all of the latencies recorded */
+	public void reset() {
+		for (int i = 0; i < this.counts.length(); i++) {
+			this.counts.set(i, 0);
+		}
+		this.count.set(0);
+		this.max.set(0);
+	}
+}
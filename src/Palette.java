@@ -0,0 +1,100 @@
+import java.awt.Color;
+
+/**
+ * A ring buffer of colors.<br>
+ * Elements of a pattern don't store their color: they store a slot number
+ * and get their color from the palette. The palette maps slot i to the color
+ * (i + offset) modulo the number of colors, so that rotating the colors of all
+ * of the elements only increments the offset.<br>
+ * A palette never changes: rotating it returns another palette that shares
+ * the colors of this one. A pattern keeps its current palette in an
+ * AtomicReference and swaps it for the rotated one, so a thread painting the
+ * pattern always sees all of the colors of the same rotation, without any
+ * lock.<br>
+ * The rotations of a palette are created once, the first time they are
+ * needed, and shared: rotating the colors again and again (e.g. to animate
+ * them) allocates nothing after the first turn, and gives the same Palette
+ * for the same rotation (so an IndexedRaster keeps its image for it).
+ */
+
+public class Palette {
+
+	// the colors, in the order of the slots when the offset is 0 (shared by
+	// the rotations of this palette)
+	private final Color[] colors;
+
+	// the color of slot i is colors[(i + offset) % colors.length]
+	private final int offset;
+
+	// the rotations of the colors, by offset (shared by the rotations, and
+	// filled as they are needed: a rotation only has final fields, so a
+	// thread that sees it in the array sees all of it)
+	private final Palette[] rotations;
+
+	/** Create a palette with the given colors (slot 0 gets the first color) */
+	public Palette(Color... colors) {
+		if (colors.length == 0)
+			throw new IllegalArgumentException("A palette needs at least one color");
+		this.colors = colors.clone();
+		this.offset = 0;
+		this.rotations = new Palette[colors.length];
+		this.rotations[0] = this;
+	}
+
+	// a rotation of a palette
+	private Palette(Color[] colors, int offset, Palette[] rotations) {
+		this.colors = colors;
+		this.offset = offset;
+		this.rotations = rotations;
+	}
+
+	/** Return the number of colors (= slots) in this palette */
+	public int size() {
+		return this.colors.length;
+	}
+
+	/**
+	 * Return the color of the given slot<br>
+	 * Precondition: 0 <= slot < size()
+	 */
+	public Color get(int slot) {
+		int i = slot + this.offset;
+		return this.colors[(i < this.colors.length) ? i : i - this.colors.length];
+	}
+
+	/**
+	 * Return this palette where each slot has the color of the next slot. The
+	 * last slot gets the color of the first slot.
+	 */
+	public Palette rotated() {
+		int offset = this.offset + 1;
+		return rotation((offset == this.colors.length) ? 0 : offset);
+	}
+
+	/**
+	 * Return this palette rotated steps times (each slot gets the color of
+	 * the slot steps slots after it)
+	 */
+	public Palette rotated(int steps) {
+		return rotation(Math.floorMod(this.offset + steps, this.colors.length));
+	}
+
+	// return the rotation of the colors with the given offset (created the
+	// first time; two threads may both create it, which only costs a palette)
+	private Palette rotation(int offset) {
+		Palette rotation = this.rotations[offset];
+		if (rotation == null) {
+			rotation = new Palette(this.colors, offset, this.rotations);
+			this.rotations[offset] = rotation;
+		}
+		return rotation;
+	}
+
+	/**
+	 * Return the number of rotations from the palette created with the
+	 * colors, modulo size()
+	 */
+	public int getOffset() {
+		return this.offset;
+	}
+}
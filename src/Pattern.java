@@ -0,0 +1,47 @@
+import java.awt.Color;
+
+/**
+ * A graphics pattern whose elements get their colors from a Palette.<br>
+ * A pattern can be rasterized into an IndexedRaster: each pixel then holds
+ * the palette slot of the element on top at that pixel (plus one, 0 is the
+ * background). Changing the colors of the pattern changes the palette only,
+ * and the same raster can be displayed again with the new colors.<br>
+ * A pattern can also rasterize a rectangular area of a raster only, so that
+ * several threads can rasterize the tiles of the same raster (see
+ * TiledRasterizer).
+ */
+
+public interface Pattern {
+
+	/** Return the palette the elements of this pattern get their colors from */
+	Palette getPalette();
+
+	/**
+	 * Return the number of bytes of memory held by this pattern: its arrays
+	 * and buffers, not its few fields (see PatternCache)
+	 */
+	long getBytes();
+
+	/**
+	 * Return the color of the pattern at location (x,y). If (x,y) is not part
+	 * of the pattern, return null.
+	 */
+	Color getColorAt(int x, int y);
+
+	/**
+	 * Write in each pixel of raster 1 + the palette slot of the element on
+	 * top at that pixel, or IndexedRaster.BACKGROUND if there is none
+	 */
+	default void rasterize(IndexedRaster raster) {
+		rasterize(raster, 0, 0, raster.getWidth(), raster.getHeight());
+	}
+
+	/**
+	 * Rasterize the pixels of raster from (left, top) included to (right,
+	 * bottom) excluded as rasterize(raster) does, without touching the other
+	 * pixels. Only the elements that intersect that area are visited.<br>
+	 * Precondition: the area is within the raster
+	 */
+	void rasterize(IndexedRaster raster, int left, int top, int right,
+			int bottom);
+}
@@ -0,0 +1,243 @@
+import java.awt.Color;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.function.Predicate;
+
+/**
+ * Creates patterns from parameters given in code, without any dialog box, so
+ * that patterns can be created by benchmarks, servers or several threads at
+ * once.<br>
+ * The parameters are set one at a time and each setter returns the builder:
+ * <br>
+ * new PatternBuilder().count(10000).bounds(800, 600).seed(42).diskPile()
+ * <br>
+ * The count is the number of disks, rows or points of the pattern, the bounds
+ * are the size of the area the pattern fills (the window of a ViewWindow by
+ * default), the same seed always gives the same pattern (a random seed by
+ * default), and the palette gives the colors of the pattern (see each
+ * pattern for the default colors). A builder can create any number of
+ * patterns, and its parameters can be changed between them.
+ */
+
+public class PatternBuilder {
+
+	/** Default colors of a checkered board */
+	public static final Color[] BOARD_COLORS = { Color.black, Color.white };
+
+	/** Default colors of a Sierpinski triangle */
+	public static final Color[] TRIANGLE_COLORS = { Color.blue };
+
+	// number of disks, rows or points (0 if not set)
+	private long count;
+
+	// size of the area filled by the patterns
+	private int width = GraphicsElements.WIDTH;
+
+	private int height = GraphicsElements.HEIGHT;
+
+	private long seed = new Random().nextLong();
+
+	// colors of the patterns (null for the default colors)
+	private Color[] colors;
+
+	// number of threads generating the point clouds and the fractals
+	private int threads = 1;
+
+	/** Set the number of disks, rows or points of the patterns */
+	public PatternBuilder count(long count) {
+		if (count <= 0)
+			throw new IllegalArgumentException("Invalid count: " + count);
+		this.count = count;
+		return this;
+	}
+
+	/** Set the size of the area the patterns fill */
+	public PatternBuilder bounds(int width, int height) {
+		if (width <= 0 || height <= 0)
+			throw new IllegalArgumentException("Invalid bounds: " + width + "x"
+					+ height);
+		this.width = width;
+		this.height = height;
+		return this;
+	}
+
+	/** Set the seed of the random choices made to create the patterns */
+	public PatternBuilder seed(long seed) {
+		this.seed = seed;
+		return this;
+	}
+
+	/**
+	 * Set the colors of the patterns (the first color is used first). With
+	 * fewer colors than disks, a pile of disks repeats them.
+	 */
+	public PatternBuilder palette(Color... colors) {
+		if (colors.length == 0)
+			throw new IllegalArgumentException("No color in the palette");
+		this.colors = colors.clone();
+		return this;
+	}
+
+	/**
+	 * Set the number of threads generating the point clouds and the fractals
+	 * (see sierpinskiPoints() and fractalDensity)
+	 */
+	public PatternBuilder threads(int threads) {
+		if (threads <= 0)
+			throw new IllegalArgumentException("Invalid number of threads: "
+					+ threads);
+		this.threads = threads;
+		return this;
+	}
+
+	/**
+	 * Create a pile of count concentric disks filling the bounds (see
+	 * DiskPile.fit). Without a palette, the color of each disk is random.
+	 * Each disk takes a slot of the palette of the pile, so the count is at
+	 * most IndexedRaster.MAXIMUM_NUMBER_OF_SLOTS (the pile could not be
+	 * painted or exported otherwise).
+	 */
+	public DiskPile diskPile() {
+		int numDisks = checkCount(IndexedRaster.MAXIMUM_NUMBER_OF_SLOTS);
+		Random gen = new Random(this.seed);
+		Color[] colors = new Color[numDisks];
+		for (int i = 0; i < numDisks; i++) {
+			colors[i] = (this.colors != null) ? this.colors[i
+					% this.colors.length] : new Color(gen.nextInt(255),
+					gen.nextInt(255), gen.nextInt(255));
+		}
+		return DiskPile.fit(this.width, this.height, 10, colors);
+	}
+
+	/**
+	 * Create a checkered board of count x count squares filling the bounds
+	 * (see CheckeredBoard.fit), with the first two colors of the palette
+	 * (BOARD_COLORS by default)
+	 */
+	public CheckeredBoard checkeredBoard() {
+		int rows = checkCount(Integer.MAX_VALUE);
+		Color[] colors = (this.colors != null) ? this.colors : BOARD_COLORS;
+		if (colors.length < 2)
+			throw new IllegalStateException("A checkered board needs 2 colors");
+		return CheckeredBoard.fit(rows, this.width, this.height, colors[0],
+				colors[1]);
+	}
+
+	/**
+	 * Create a Sierpinski triangle of count points stored as a point cloud.
+	 * The points are generated by the given number of threads (see
+	 * ChaosGame.generate). The palette is TRIANGLE_COLORS by default.
+	 */
+	public SierpinskiPoints sierpinskiPoints() {
+		return ChaosGame.sierpinski(this.width, this.height).generate(
+				checkCount(Integer.MAX_VALUE), this.seed, this.threads,
+				new Palette(triangleColors()));
+	}
+
+	/**
+	 * Create the same Sierpinski triangle as sierpinskiPoints(), and let the
+	 * caller watch it grow (on the thread calling this method). The points
+	 * are added in batches of about batchSize points, generated by the
+	 * threads walks in parallel; after each batch, listener is given the
+	 * cloud. If listener returns false, no more points are added and the
+	 * partial cloud is returned.
+	 */
+	public SierpinskiPoints sierpinskiPoints(int batchSize,
+			Predicate<SierpinskiPoints> listener) {
+		return ChaosGame.sierpinski(this.width, this.height).generate(
+				checkCount(Integer.MAX_VALUE), this.seed, this.threads,
+				new Palette(triangleColors()), batchSize, listener);
+	}
+
+	/**
+	 * Create an exact Sierpinski triangle filling the bounds (see
+	 * SierpinskiRaster.fit). The count and the seed are not used. The palette
+	 * is TRIANGLE_COLORS by default.
+	 */
+	public SierpinskiRaster sierpinskiRaster() {
+		return SierpinskiRaster.fit(this.width, this.height, new Palette(
+				triangleColors()));
+	}
+
+	/**
+	 * Create a Sierpinski triangle of count points stored as a density (see
+	 * DensityBuffer), with levels shades of each color of the palette
+	 * (TRIANGLE_COLORS by default)
+	 */
+	public DensityBuffer sierpinskiDensity(int levels) {
+		return sierpinskiDensity(levels, Integer.MAX_VALUE, density -> true);
+	}
+
+	/**
+	 * Create a Sierpinski triangle of count points stored as a density (as in
+	 * sierpinskiDensity(levels)), and let the caller watch it grow. The points
+	 * are added in batches of batchSize points; after each batch, listener is
+	 * given the density with the new points published. If listener returns
+	 * false, no more points are added and the partial density is returned.
+	 */
+	public DensityBuffer sierpinskiDensity(int levels, int batchSize,
+			Predicate<DensityBuffer> listener) {
+		long pointCount = checkCount(Long.MAX_VALUE);
+		ChaosGame game = ChaosGame.sierpinski(this.width, this.height);
+		DensityBuffer density = new DensityBuffer(this.width, this.height,
+				triangleColors(), levels);
+		SplittableRandom random = new SplittableRandom(this.seed);
+		for (long done = 0; done < pointCount;) {
+			long n = Math.min(batchSize, pointCount - done);
+			game.walk(density, n, random);
+			density.publish();
+			done += n;
+			if (!listener.test(density))
+				break;
+		}
+		return density;
+	}
+
+	/**
+	 * Create the fractal of an iterated function system (see
+	 * IteratedFunctionSystem) made of count points stored as a density, with
+	 * levels shades of each color of the palette (TRIANGLE_COLORS by
+	 * default). The points are generated by the given number of threads.
+	 */
+	public DensityBuffer fractalDensity(IteratedFunctionSystem system,
+			int levels) {
+		return fractalDensity(system, levels, Long.MAX_VALUE, density -> true);
+	}
+
+	/**
+	 * Create the fractal of an iterated function system made of count points
+	 * stored as a density (as in fractalDensity(system, levels)), and let the
+	 * caller watch it grow. The points are added in batches of about
+	 * batchSize points (split between the threads, see
+	 * IteratedFunctionSystem.generate); after each batch, listener is given
+	 * the density with the new points published. If listener returns false,
+	 * no more points are added and the partial density is returned.
+	 */
+	public DensityBuffer fractalDensity(IteratedFunctionSystem system,
+			int levels, long batchSize, Predicate<DensityBuffer> listener) {
+		long pointCount = checkCount(Long.MAX_VALUE);
+		DensityBuffer density = new DensityBuffer(this.width, this.height,
+				triangleColors(), levels);
+		system.generate(density, pointCount, this.seed, this.threads,
+				batchSize, listener);
+		return density;
+	}
+
+	// return the count if it is set and at most maximum
+	private int checkCount(int maximum) {
+		return (int) checkCount((long) maximum);
+	}
+
+	private long checkCount(long maximum) {
+		if (this.count <= 0)
+			throw new IllegalStateException("The count is not set");
+		if (this.count > maximum)
+			throw new IllegalStateException("The count must be at most "
+					+ maximum + ", got " + this.count);
+		return this.count;
+	}
+
+	private Color[] triangleColors() {
+		return (this.colors != null) ? this.colors : TRIANGLE_COLORS;
+	}
+}
@@ -0,0 +1,209 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * The last patterns created, with their rasters, so that a pattern created
+ * again with the same parameters does not have to be generated and
+ * rasterized again.<br>
+ * A pattern is keyed by its type, its size (number of disks, rows or points)
+ * and the seed of its random choices, which together determine it. The
+ * raster holds palette slots, not colors (see IndexedRaster), so it stays
+ * valid whatever the state of the palette of the pattern: the pattern is
+ * kept with its palette as it is, and comes back with the colors it had.<br>
+ * A pattern is weighed by the bytes of memory it holds with its raster (see
+ * Pattern.getBytes: 4 bytes per point of a cloud, 4 per pixel of a density
+ * buffer, 2 per pixel of a raster...), when it is added. The cache holds at
+ * most a given number of bytes and forgets the least recently used patterns
+ * first to stay within them; a pattern heavier than that is not kept at all.
+ * The number of hits, misses and evictions and the bytes held are counted
+ * (see PatternMetrics.setPatternCache to watch them through JMX). The cache
+ * can be used by several threads.
+ */
+
+public class PatternCache {
+
+	/** Default number of bytes held by a cache (256 MB) */
+	public static final long DEFAULT_MAXIMUM_BYTES = 256L << 20;
+
+	// maximum number of bytes of the patterns, and bytes of the patterns
+	private long maximumBytes;
+
+	private long bytes;
+
+	// the patterns, least recently used first
+	private LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(
+			16, 0.75f, true);
+
+	// statistics
+	private long hits;
+
+	private long misses;
+
+	private long evictions;
+
+	/** Create an empty cache of DEFAULT_MAXIMUM_BYTES bytes */
+	public PatternCache() {
+		this(DEFAULT_MAXIMUM_BYTES);
+	}
+
+	/** Create an empty cache of maximumBytes bytes */
+	public PatternCache(long maximumBytes) {
+		if (maximumBytes <= 0)
+			throw new IllegalArgumentException("Invalid number of bytes: "
+					+ maximumBytes);
+		this.maximumBytes = maximumBytes;
+	}
+
+	/**
+	 * Return the pattern (and its raster) created with the parameters of key,
+	 * or null if it is not in the cache
+	 */
+	public synchronized Entry get(Key key) {
+		Entry entry = this.entries.get(key);
+		if (entry != null)
+			this.hits++;
+		else
+			this.misses++;
+		return entry;
+	}
+
+	/**
+	 * Add the pattern created with the parameters of key, and its raster
+	 * (that holds the rasterized pattern), and forget the least recently used
+	 * patterns until the cache holds at most its maximum number of bytes. A
+	 * pattern heavier than that is not added.
+	 */
+	public synchronized void put(Key key, Pattern pattern, IndexedRaster raster) {
+		Entry entry = new Entry(pattern, raster);
+		remove(key);
+		if (entry.bytes > this.maximumBytes)
+			return;
+		this.entries.put(key, entry);
+		this.bytes += entry.bytes;
+		Iterator<Entry> eldest = this.entries.values().iterator();
+		while (this.bytes > this.maximumBytes) {
+			this.bytes -= eldest.next().bytes;
+			eldest.remove();
+			this.evictions++;
+		}
+	}
+
+	/** Forget the pattern created with the parameters of key (if any) */
+	public synchronized void remove(Key key) {
+		Entry entry = this.entries.remove(key);
+		if (entry != null)
+			this.bytes -= entry.bytes;
+	}
+
+	/** Return the number of patterns in the cache */
+	public synchronized int size() {
+		return this.entries.size();
+	}
+
+	/** Return the number of bytes of the patterns in the cache */
+	public synchronized long getBytes() {
+		return this.bytes;
+	}
+
+	/** Return the maximum number of bytes of the patterns in the cache */
+	public long getMaximumBytes() {
+		return this.maximumBytes;
+	}
+
+	/** Return the number of calls to get that found a pattern */
+	public synchronized long getHits() {
+		return this.hits;
+	}
+
+	/** Return the number of calls to get that found no pattern */
+	public synchronized long getMisses() {
+		return this.misses;
+	}
+
+	/** Return the number of patterns forgotten to make room for others */
+	public synchronized long getEvictions() {
+		return this.evictions;
+	}
+
+	/** Return the statistics of the cache */
+	public synchronized String toString() {
+		return "PatternCache[size=" + this.entries.size() + ", bytes="
+				+ this.bytes + "/" + this.maximumBytes + ", hits=" + this.hits + ", misses="
+				+ this.misses + ", evictions=" + this.evictions + "]";
+	}
+
+	/** The parameters of a pattern: its type, its size and its seed */
+	public static class Key {
+
+		private int type;
+
+		private long size;
+
+		private long seed;
+
+		/**
+		 * Create the key of a pattern of the given type (see ViewWindow),
+		 * size and seed
+		 */
+		public Key(int type, long size, long seed) {
+			this.type = type;
+			this.size = size;
+			this.seed = seed;
+		}
+
+		/** Return the type of the pattern */
+		public int getType() {
+			return this.type;
+		}
+
+		/** Return the size of the pattern */
+		public long getSize() {
+			return this.size;
+		}
+
+		/** Return the seed of the pattern */
+		public long getSeed() {
+			return this.seed;
+		}
+
+		public boolean equals(Object o) {
+			if (!(o instanceof Key))
+				return false;
+			Key other = (Key) o;
+			return this.type == other.type && this.size == other.size
+					&& this.seed == other.seed;
+		}
+
+		public int hashCode() {
+			return 31 * (31 * this.type + Long.hashCode(this.size))
+					+ Long.hashCode(this.seed);
+		}
+	}
+
+	/** A pattern of the cache and its raster */
+	public static class Entry {
+
+		private Pattern pattern;
+
+		private IndexedRaster raster;
+
+		// bytes of the pattern and of its raster (when it was added)
+		private long bytes;
+
+		Entry(Pattern pattern, IndexedRaster raster) {
+			this.pattern = pattern;
+			this.raster = raster;
+			this.bytes = pattern.getBytes() + raster.getBytes();
+		}
+
+		/** Return the pattern */
+		public Pattern getPattern() {
+			return this.pattern;
+		}
+
+		/** Return the raster of the pattern */
+		public IndexedRaster getRaster() {
+			return this.raster;
+		}
+	}
+}
@@ -0,0 +1,34 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Flight Recorder event for an operation on a pattern (generation, color
+ * transform, paint or hit test, see PatternMetrics). When no recording asks
+ * for it, creating and ending the event costs next to nothing.
+ */
+
+@Name("patterns.PatternOperation")
+@Label("Pattern Operation")
+@Category("Patterns")
+@Description("Generation, color transform, paint or hit test of a pattern")
+public class PatternEvent extends Event {
+
+	@Label("Operation")
+	String operation;
+
+	@Label("Pattern")
+	String pattern;
+
+	@Label("Elements")
+	@Description("Number of disks, rows or points of the pattern")
+	long elements;
+
+	@Label("Bytes Allocated")
+	@Description("Bytes allocated by the generating thread, not by the threads it hands work to (generation only, -1 otherwise)")
+	@DataAmount
+	long bytesAllocated;
+}
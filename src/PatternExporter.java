@@ -0,0 +1,217 @@
+import java.awt.Color;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Exports patterns to image files, without any window or dialog box (the
+ * program runs headless).<br>
+ * A job creates a pattern with GraphicsElements (filling an area of the
+ * requested resolution), rasterizes it with a TiledRasterizer and writes it
+ * row after row as a PNG image (see PngWriter) or as raw RGBA bytes (4 bytes
+ * per pixel, row after row, no header). The pixels where nothing is drawn
+ * are transparent. The Sierpinski triangles are made of a density (see
+ * DensityBuffer): no list of points is kept, whatever the number of points.
+ * <br>
+ * Usage:<br>
+ * java PatternExporter type size seed widthxheight png|rgba file<br>
+ * java PatternExporter -batch jobs<br>
+ * where type is one of disks (size disks), board (size rows), sierpinski
+ * (size points), density (size points, shaded) or exact (size ignored). In
+ * batch mode, each line of the file jobs is a job (same 6 fields, blank lines
+ * and lines starting with # are ignored) and the jobs run concurrently.
+ */
+
+public class PatternExporter {
+
+	/** The types of patterns */
+	public static final String[] TYPES = { "disks", "board", "sierpinski",
+			"density", "exact" };
+
+	// the pattern to create and the file to write
+	private String type;
+
+	private long size;
+
+	private long seed;
+
+	private int width;
+
+	private int height;
+
+	private boolean png;
+
+	private String file;
+
+	/**
+	 * Create the job described by its 6 fields: type size seed widthxheight
+	 * png|rgba file
+	 */
+	public PatternExporter(String[] fields) {
+		if (fields.length != 6)
+			throw new IllegalArgumentException(
+					"Expected type size seed widthxheight png|rgba file, got "
+							+ String.join(" ", fields));
+		this.type = fields[0];
+		if (!List.of(TYPES).contains(this.type))
+			throw new IllegalArgumentException("Unknown type: " + this.type);
+		this.size = Long.parseLong(fields[1]);
+		this.seed = Long.parseLong(fields[2]);
+		String[] resolution = fields[3].split("x");
+		if (resolution.length != 2)
+			throw new IllegalArgumentException("Invalid resolution: "
+					+ fields[3]);
+		this.width = Integer.parseInt(resolution[0]);
+		this.height = Integer.parseInt(resolution[1]);
+		if (this.width <= 0 || this.height <= 0
+				|| (long) this.width * this.height > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Invalid resolution: "
+					+ fields[3]);
+		if (!fields[4].equals("png") && !fields[4].equals("rgba"))
+			throw new IllegalArgumentException("Unknown format: " + fields[4]);
+		this.png = fields[4].equals("png");
+		this.file = fields[5];
+	}
+
+	/** Return the file written by this job */
+	public String getFile() {
+		return this.file;
+	}
+
+	/** Create the pattern of this job */
+	public Pattern createPattern() {
+		GraphicsElements elements = new GraphicsElements(this.width,
+				this.height);
+		switch (this.type) {
+		case "disks":
+			return elements.createADiskPile(
+					checkSize(GraphicsElements.MAXIMUM_NUMBER_OF_PILE_DISKS),
+					this.seed);
+		case "board":
+			return elements.createACheckeredBoardGrid(
+					checkSize(GraphicsElements.MAXIMUM_NUMBER_OF_GRID_ROWS));
+		case "sierpinski":
+		case "density":
+			return elements.createASierpinskiDensity(
+					checkSize(GraphicsElements.MAXIMUM_NUMBER_OF_DENSITY_POINTS),
+					this.seed, this.type.equals("density"), density -> true);
+		default:
+			return elements.createAnExactSierpinskiTriangle();
+		}
+	}
+
+	// return the size of this job if it is between 1 and maximum
+	private int checkSize(int maximum) {
+		if (this.size <= 0 || this.size > maximum)
+			throw new IllegalArgumentException("The size of a " + this.type
+					+ " pattern must be between 1 and " + maximum + ", got "
+					+ this.size);
+		return (int) this.size;
+	}
+
+	/** Create the pattern of this job and write it to the file of the job */
+	public void run() throws IOException {
+		Pattern pattern = createPattern();
+		IndexedRaster raster = new IndexedRaster(this.width, this.height);
+		new TiledRasterizer().rasterize(pattern, raster);
+
+		// RGBA bytes of each value of the raster (0 is transparent)
+		Palette palette = pattern.getPalette();
+		byte[][] colors = new byte[palette.size() + 1][4];
+		for (int slot = 0; slot < palette.size(); slot++) {
+			Color c = palette.get(slot);
+			colors[slot + 1] = new byte[] { (byte) c.getRed(),
+					(byte) c.getGreen(), (byte) c.getBlue(),
+					(byte) c.getAlpha() };
+		}
+
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(
+				this.file));
+		try {
+			PngWriter writer = this.png ? new PngWriter(out, this.width,
+					this.height) : null;
+			byte[] row = new byte[4 * this.width];
+			for (int y = 0; y < this.height; y++) {
+				for (int x = 0; x < this.width; x++) {
+					System.arraycopy(colors[raster.get(x, y)], 0, row, 4 * x, 4);
+				}
+				if (writer != null)
+					writer.writeRow(row);
+				else
+					out.write(row);
+			}
+			if (writer != null)
+				writer.close();
+		} finally {
+			out.close();
+		}
+	}
+
+	/** Run the jobs concurrently, and return the number of failed jobs */
+	public static int runAll(List<PatternExporter> jobs) {
+		ExecutorService executor = Executors.newFixedThreadPool(Runtime
+				.getRuntime().availableProcessors());
+		try {
+			List<Future<?>> results = new ArrayList<Future<?>>();
+			for (PatternExporter job : jobs) {
+				results.add(executor.submit(() -> {
+					job.run();
+					return null;
+				}));
+			}
+			int failures = 0;
+			for (int i = 0; i < jobs.size(); i++) {
+				try {
+					results.get(i).get();
+					System.out.println(jobs.get(i).getFile() + ": done");
+				} catch (ExecutionException e) {
+					System.err.println(jobs.get(i).getFile() + ": "
+							+ e.getCause());
+					failures++;
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return failures + jobs.size() - i;
+				}
+			}
+			return failures;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/** Run the job or the batch of jobs given on the command line */
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+		List<PatternExporter> jobs = new ArrayList<PatternExporter>();
+		try {
+			if (args.length == 2 && args[0].equals("-batch")) {
+				for (String line : Files.readAllLines(Paths.get(args[1]))) {
+					line = line.trim();
+					if (!line.isEmpty() && !line.startsWith("#"))
+						jobs.add(new PatternExporter(line.split("\\s+")));
+				}
+			} else {
+				jobs.add(new PatternExporter(args));
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: java PatternExporter type size seed "
+					+ "widthxheight png|rgba file");
+			System.err.println("   or: java PatternExporter -batch jobs");
+			System.err.println("where type is one of "
+					+ String.join(", ", TYPES));
+			System.exit(2);
+		}
+		if (runAll(jobs) > 0)
+			System.exit(1);
+	}
+}
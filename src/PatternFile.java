@@ -0,0 +1,413 @@
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A pattern saved in a binary file, so that it can be displayed again without
+ * being generated again.<br>
+ * The file starts with a header of HEADER_SIZE bytes: MAGIC, VERSION, the
+ * type of the pattern (see ViewWindow), the width and height of the area it
+ * fills, the number of slots of its palette (ints) and its size (number of
+ * disks, rows or points, a long). The color of each slot of the palette
+ * follows (an ARGB int), then the pattern, from an offset that is a multiple
+ * of 8 bytes:<br>
+ * - a pile of disks: the center (2 ints), then the radius of each disk
+ * (doubles), from the bottom<br>
+ * - a checkered board: the number of rows, the side of a square, the left
+ * and the top of the board (ints)<br>
+ * - a Sierpinski triangle made of points: the bitmap of the pixels covered
+ * by the points (longs, see PixelBitmap), then the x coordinate of each
+ * point, then the y coordinate of each point (shorts)<br>
+ * - an exact Sierpinski triangle: the bitmap of its pixels<br>
+ * - a Sierpinski triangle, a fern, a carpet or a gasket stored as a density:
+ * the number of shades of each color (an int and 4 bytes of padding), then
+ * the number of points on each pixel, row after row (ints)<br>
+ * All of the numbers are little endian.<br>
+ * The file is written and read through memory mappings of a FileChannel.
+ * When a file is opened, the coordinates of the points are not read: the
+ * point cloud uses read-only views of the mapped file (outside of the heap,
+ * paged in by the system when they are used), so opening a file of 100
+ * million points only takes the time of reading its bitmap. Everything else
+ * is bounded by the size of the area and is copied into the heap.<br>
+ * A pattern is saved to a new file that replaces the old one once it is
+ * complete, so a point cloud can be saved to the file it was opened from:
+ * it keeps reading the old file, which the system keeps until it is
+ * unmapped.
+ */
+
+public class PatternFile {
+
+	/** First 4 bytes of a pattern file ("PATT") */
+	public static final int MAGIC = 0x54544150;
+
+	/** Version of the format of the files */
+	public static final int VERSION = 1;
+
+	/** Size of the header, in bytes */
+	public static final int HEADER_SIZE = 32;
+
+	// what the file holds
+	private int type;
+
+	private int width;
+
+	private int height;
+
+	private long size;
+
+	private Pattern pattern;
+
+	private PatternFile(int type, int width, int height, long size,
+			Pattern pattern) {
+		this.type = type;
+		this.width = width;
+		this.height = height;
+		this.size = size;
+		this.pattern = pattern;
+	}
+
+	/** Return the type of the pattern (see ViewWindow) */
+	public int getType() {
+		return this.type;
+	}
+
+	/** Return the width of the area filled by the pattern */
+	public int getWidth() {
+		return this.width;
+	}
+
+	/** Return the height of the area filled by the pattern */
+	public int getHeight() {
+		return this.height;
+	}
+
+	/** Return the number of disks, rows or points of the pattern */
+	public long getSize() {
+		return this.size;
+	}
+
+	/** Return the pattern */
+	public Pattern getPattern() {
+		return this.pattern;
+	}
+
+	/**
+	 * Save pattern, that fills a width x height area, to file (replaced if it
+	 * exists, even if pattern was opened from it). The pattern is saved with
+	 * the colors it has now.<br>
+	 * Precondition: the pattern is a DiskPile, a CheckeredBoard, a
+	 * SierpinskiPoints, a SierpinskiRaster or a DensityBuffer, and the bitmap
+	 * or density of a Sierpinski triangle covers the width x height area
+	 */
+	public static void save(Pattern pattern, int width, int height, Path file)
+			throws IOException {
+		save(pattern, typeOf(pattern), width, height, file);
+	}
+
+	/**
+	 * Save pattern (as save(pattern, width, height, file)) as a pattern of the
+	 * given type (see ViewWindow), so that a density is opened again as the
+	 * Sierpinski triangle, fern, carpet or gasket it is.<br>
+	 * Precondition: the pattern is of the given type (a DensityBuffer for
+	 * SIERPINSKI_DENSITY, FERN, CARPET and GASKET)
+	 */
+	public static void save(Pattern pattern, int type, int width, int height,
+			Path file) throws IOException {
+		int kind = typeOf(pattern);
+		if (type != kind
+				&& !(kind == ViewWindow.SIERPINSKI_DENSITY
+						&& type >= ViewWindow.FERN && type <= ViewWindow.GASKET))
+			throw new IllegalArgumentException("Can't save a "
+					+ pattern.getClass().getName() + " as a pattern of type "
+					+ type);
+		long size;
+		long payloadSize;
+		switch (kind) {
+		case ViewWindow.DISK_PILE:
+			size = ((DiskPile) pattern).size();
+			payloadSize = 8 + 8 * size;
+			break;
+		case ViewWindow.CHECKERED_BOARD:
+			size = ((CheckeredBoard) pattern).getRows();
+			payloadSize = 16;
+			break;
+		case ViewWindow.SIERPINSKI:
+			SierpinskiPoints points = (SierpinskiPoints) pattern;
+			checkArea(points.getCoverage(), width, height);
+			size = points.size();
+			payloadSize = 8L * points.getCoverage().getNumberOfWords() + 4
+					* size;
+			break;
+		case ViewWindow.SIERPINSKI_EXACT:
+			checkArea(((SierpinskiRaster) pattern).getPixels(), width, height);
+			size = 0;
+			payloadSize = 8L * ((SierpinskiRaster) pattern).getPixels()
+					.getNumberOfWords();
+			break;
+		default:
+			DensityBuffer density = (DensityBuffer) pattern;
+			if (density.getWidth() != width || density.getHeight() != height)
+				throw new IllegalArgumentException("Expected a " + width + "x"
+						+ height + " density, got " + density.getWidth() + "x"
+						+ density.getHeight());
+			size = density.getTotal();
+			payloadSize = 8 + 4L * width * height;
+		}
+
+		// write a new file next to file, and move it over file once it is
+		// complete (truncating file would zero the points mapped from it)
+		Path temporary = Files.createTempFile(file.toAbsolutePath()
+				.getParent(), "pattern", ".tmp");
+		try {
+			write(pattern, type, width, height, size, payloadSize, temporary);
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	// write pattern (see save) to file, with its type, size and size of its
+	// payload in bytes
+	private static void write(Pattern pattern, int type, int width,
+			int height, long size, long payloadSize, Path file)
+			throws IOException {
+		Palette palette = pattern.getPalette();
+		try (FileChannel channel = FileChannel.open(file,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			long start = payloadStart(palette.size());
+			ByteBuffer header = map(channel, FileChannel.MapMode.READ_WRITE, 0,
+					start);
+			header.putInt(MAGIC).putInt(VERSION).putInt(type).putInt(width)
+					.putInt(height).putInt(palette.size()).putLong(size);
+			for (int slot = 0; slot < palette.size(); slot++) {
+				header.putInt(palette.get(slot).getRGB());
+			}
+
+			switch (type) {
+			case ViewWindow.DISK_PILE:
+				DiskPile pile = (DiskPile) pattern;
+				ByteBuffer disks = map(channel, FileChannel.MapMode.READ_WRITE,
+						start, payloadSize);
+				disks.putInt(pile.getCenterX()).putInt(pile.getCenterY());
+				for (int i = 0; i < pile.size(); i++) {
+					disks.putDouble(pile.getRadius(i));
+				}
+				break;
+			case ViewWindow.CHECKERED_BOARD:
+				CheckeredBoard board = (CheckeredBoard) pattern;
+				map(channel, FileChannel.MapMode.READ_WRITE, start, payloadSize)
+						.putInt(board.getRows()).putInt(board.getSquareSize())
+						.putInt(board.getLeft()).putInt(board.getTop());
+				break;
+			case ViewWindow.SIERPINSKI:
+				SierpinskiPoints points = (SierpinskiPoints) pattern;
+				PixelBitmap coverage = points.getCoverage();
+				long xsStart = start + 8L * coverage.getNumberOfWords();
+				coverage.copyTo(map(channel, FileChannel.MapMode.READ_WRITE,
+						start, xsStart - start).asLongBuffer());
+				map(channel, FileChannel.MapMode.READ_WRITE, xsStart, 2 * size)
+						.asShortBuffer().put(points.getXs().limit((int) size));
+				map(channel, FileChannel.MapMode.READ_WRITE,
+						xsStart + 2 * size, 2 * size).asShortBuffer().put(
+						points.getYs().limit((int) size));
+				break;
+			case ViewWindow.SIERPINSKI_EXACT:
+				((SierpinskiRaster) pattern).getPixels().copyTo(
+						map(channel, FileChannel.MapMode.READ_WRITE, start,
+								payloadSize).asLongBuffer());
+				break;
+			default:
+				DensityBuffer density = (DensityBuffer) pattern;
+				ByteBuffer counts = map(channel,
+						FileChannel.MapMode.READ_WRITE, start, payloadSize);
+				counts.putInt(density.getLevels()).putInt(0);
+				density.copyTo(counts.asIntBuffer());
+			}
+		}
+	}
+
+	/**
+	 * Open the pattern saved in file. The coordinates of the points of a
+	 * Sierpinski triangle stay in the file (mapped in memory). The header is
+	 * checked against the length of the file before anything is allocated, so
+	 * a corrupt or truncated file only throws an IOException.
+	 */
+	public static PatternFile open(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file,
+				StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_SIZE)
+				throw new IOException(file + " is not a pattern file");
+			ByteBuffer header = map(channel, FileChannel.MapMode.READ_ONLY, 0,
+					HEADER_SIZE);
+			if (header.getInt() != MAGIC)
+				throw new IOException(file + " is not a pattern file");
+			int version = header.getInt();
+			if (version != VERSION)
+				throw new IOException("Unknown version of " + file + ": "
+						+ version);
+			int type = header.getInt();
+			int width = header.getInt();
+			int height = header.getInt();
+			int slots = header.getInt();
+			long size = header.getLong();
+			if (type < ViewWindow.DISK_PILE || type > ViewWindow.GASKET)
+				throw corrupt(file, "unknown type " + type);
+			if (width <= 0 || height <= 0
+					|| (long) width * height > Integer.MAX_VALUE)
+				throw corrupt(file, "invalid size " + width + "x" + height);
+			if (slots <= 0 || slots > IndexedRaster.MAXIMUM_NUMBER_OF_SLOTS)
+				throw corrupt(file, "invalid number of slots " + slots);
+			if (size < 0)
+				throw corrupt(file, "invalid size " + size);
+
+			// the colors of the slots
+			long start = payloadStart(slots);
+			checkLength(channel, file, start);
+			ByteBuffer colors = map(channel, FileChannel.MapMode.READ_ONLY,
+					HEADER_SIZE, 4L * slots);
+			Color[] slotColors = new Color[slots];
+			for (int slot = 0; slot < slots; slot++) {
+				slotColors[slot] = new Color(colors.getInt(), true);
+			}
+
+			Pattern pattern;
+			switch (type) {
+			case ViewWindow.DISK_PILE:
+				if (size == 0 || size > slots)
+					throw corrupt(file, size + " disks for " + slots + " slots");
+				long disksLength = Math.addExact(8, Math.multiplyExact(8, size));
+				checkLength(channel, file, Math.addExact(start, disksLength));
+				ByteBuffer disks = map(channel, FileChannel.MapMode.READ_ONLY,
+						start, disksLength);
+				int centerX = disks.getInt();
+				int centerY = disks.getInt();
+				double[] radii = new double[(int) size];
+				disks.asDoubleBuffer().get(radii);
+				Color[] diskColors = new Color[radii.length];
+				System.arraycopy(slotColors, 0, diskColors, 0, radii.length);
+				pattern = new DiskPile(centerX, centerY, radii, diskColors);
+				break;
+			case ViewWindow.CHECKERED_BOARD:
+				checkLength(channel, file, start + 16);
+				if (slots < 2)
+					throw corrupt(file, "a board needs 2 slots");
+				ByteBuffer board = map(channel, FileChannel.MapMode.READ_ONLY,
+						start, 16);
+				pattern = new CheckeredBoard(board.getInt(), board.getInt(),
+						board.getInt(), board.getInt(), slotColors[0],
+						slotColors[1]);
+				break;
+			case ViewWindow.SIERPINSKI:
+				if (size > Integer.MAX_VALUE)
+					throw corrupt(file, "too many points " + size);
+				long xsStart = start + bitmapLength(width, height);
+				checkLength(channel, file, Math.addExact(xsStart, Math
+						.multiplyExact(4, size)));
+				PixelBitmap coverage = new PixelBitmap(width, height);
+				coverage.copyFrom(map(channel, FileChannel.MapMode.READ_ONLY,
+						start, xsStart - start).asLongBuffer());
+				ShortBuffer xs = map(channel, FileChannel.MapMode.READ_ONLY,
+						xsStart, 2 * size).asShortBuffer();
+				ShortBuffer ys = map(channel, FileChannel.MapMode.READ_ONLY,
+						xsStart + 2 * size, 2 * size).asShortBuffer();
+				pattern = new SierpinskiPoints(xs, ys, coverage, new Palette(
+						slotColors));
+				break;
+			case ViewWindow.SIERPINSKI_EXACT:
+				checkLength(channel, file, start + bitmapLength(width, height));
+				PixelBitmap pixels = new PixelBitmap(width, height);
+				pixels.copyFrom(map(channel, FileChannel.MapMode.READ_ONLY,
+						start, 8L * pixels.getNumberOfWords()).asLongBuffer());
+				pattern = new SierpinskiRaster(pixels, new Palette(slotColors));
+				break;
+			default:
+				long countsLength = Math.addExact(8, Math.multiplyExact(4L,
+						Math.multiplyExact(width, height)));
+				checkLength(channel, file, Math.addExact(start, countsLength));
+				ByteBuffer counts = map(channel, FileChannel.MapMode.READ_ONLY,
+						start, countsLength);
+				int levels = counts.getInt();
+				counts.getInt();
+				if (levels <= 0 || slots % levels != 0)
+					throw corrupt(file, levels + " shades for " + slots
+							+ " slots");
+				// the last shade of each base color is the color itself
+				Color[] baseColors = new Color[slots / levels];
+				for (int i = 0; i < baseColors.length; i++) {
+					baseColors[i] = slotColors[i * levels + levels - 1];
+				}
+				DensityBuffer density = new DensityBuffer(width, height,
+						baseColors, levels);
+				density.addAll(counts.asIntBuffer());
+				density.publish();
+				pattern = density;
+			}
+			return new PatternFile(type, width, height, size, pattern);
+		}
+	}
+
+	// return the type (see ViewWindow) of pattern (SIERPINSKI_DENSITY for
+	// any density)
+	private static int typeOf(Pattern pattern) {
+		if (pattern instanceof DiskPile)
+			return ViewWindow.DISK_PILE;
+		if (pattern instanceof CheckeredBoard)
+			return ViewWindow.CHECKERED_BOARD;
+		if (pattern instanceof SierpinskiPoints)
+			return ViewWindow.SIERPINSKI;
+		if (pattern instanceof SierpinskiRaster)
+			return ViewWindow.SIERPINSKI_EXACT;
+		if (pattern instanceof DensityBuffer)
+			return ViewWindow.SIERPINSKI_DENSITY;
+		throw new IllegalArgumentException("Can't save a "
+				+ pattern.getClass().getName());
+	}
+
+	private static void checkArea(PixelBitmap bitmap, int width, int height) {
+		if (bitmap.getWidth() != width || bitmap.getHeight() != height)
+			throw new IllegalArgumentException("Expected a " + width + "x"
+					+ height + " bitmap, got " + bitmap.getWidth() + "x"
+					+ bitmap.getHeight());
+	}
+
+	// offset of the pattern in a file whose palette has the given number of
+	// slots (the next multiple of 8 after the colors)
+	private static long payloadStart(int slots) {
+		return (HEADER_SIZE + 4L * slots + 7) & ~7L;
+	}
+
+	// number of bytes of the bitmap of a width x height area (see
+	// PixelBitmap)
+	private static long bitmapLength(int width, int height) {
+		return 8 * (((long) width * height + 63) / 64);
+	}
+
+	// the exception thrown when file can't hold a pattern, for the given
+	// reason
+	private static IOException corrupt(Path file, String reason) {
+		return new IOException("Corrupt pattern file " + file + ": " + reason);
+	}
+
+	// throw an IOException if the file is shorter than length bytes
+	private static void checkLength(FileChannel channel, Path file, long length)
+			throws IOException {
+		if (channel.size() < length)
+			throw corrupt(file, "truncated to " + channel.size()
+					+ " bytes, expected " + length);
+	}
+
+	// map size bytes of the file from position, in little endian order
+	private static ByteBuffer map(FileChannel channel,
+			FileChannel.MapMode mode, long position, long size)
+			throws IOException {
+		return channel.map(mode, position, size).order(ByteOrder.LITTLE_ENDIAN);
+	}
+}
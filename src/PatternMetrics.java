@@ -0,0 +1,231 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Measures the operations on the patterns: generation, color transform,
+ * paint and hit test.<br>
+ * An operation is measured in two ways: its latency is recorded in a
+ * LatencyHistogram per operation (p50, p99 and max, available through JMX
+ * once register is called), and a PatternEvent is sent to Flight Recorder.
+ * The generation also records the number of elements of the pattern and the
+ * bytes allocated by the generating thread (only that thread: the bytes
+ * allocated by the pool threads of a parallel generation are not counted).
+ * The hits, misses, evictions and bytes of a PatternCache can be watched
+ * through JMX as well (see setPatternCache).<br>
+ * Both are off by default: the histograms are enabled through JMX (or with
+ * -Dpatterns.metrics=true), and the events by a Flight Recorder recording.
+ * While disabled, measuring an operation only reads a volatile boolean (and
+ * creates an event the JIT compiler removes).<br>
+ * An operation is measured as follows:<br>
+ * PatternEvent event = metrics.begin();<br>
+ * long start = metrics.start();<br>
+ * ... the operation ...<br>
+ * metrics.end(PatternMetrics.PAINT, start, event, "Disk pile", 100);
+ */
+
+public class PatternMetrics implements PatternMetricsMXBean {
+
+	/** The operations measured */
+	public static final int GENERATION = 0;
+
+	public static final int TRANSFORM = 1;
+
+	public static final int PAINT = 2;
+
+	public static final int HIT_TEST = 3;
+
+	/** The names of the operations (indexed by operation) */
+	public static final String[] OPERATIONS = { "generation", "transform",
+			"paint", "hit test" };
+
+	/** Name of the MBean of the metrics */
+	public static final String OBJECT_NAME = "patterns:type=PatternMetrics";
+
+	// the metrics of the application
+	private static final PatternMetrics INSTANCE = new PatternMetrics();
+
+	private volatile boolean enabled = Boolean.getBoolean("patterns.metrics");
+
+	// histograms[operation] holds the latencies of operation
+	private LatencyHistogram[] histograms;
+
+	private volatile long lastGenerationElements;
+
+	private volatile long lastGenerationBytesAllocated = -1;
+
+	// the cache of the patterns generated (null if none)
+	private volatile PatternCache cache;
+
+	// to measure the bytes allocated by a thread (null if not supported)
+	private com.sun.management.ThreadMXBean threads;
+
+	private PatternMetrics() {
+		this.histograms = new LatencyHistogram[OPERATIONS.length];
+		for (int i = 0; i < this.histograms.length; i++) {
+			this.histograms[i] = new LatencyHistogram();
+		}
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) threads)
+						.isThreadAllocatedMemorySupported())
+			this.threads = (com.sun.management.ThreadMXBean) threads;
+	}
+
+	/** Return the metrics of the application */
+	public static PatternMetrics getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Register the metrics of the application in the platform MBean server
+	 * under OBJECT_NAME (do nothing if they are already registered)
+	 */
+	public static void register() {
+		try {
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name))
+				ManagementFactory.getPlatformMBeanServer().registerMBean(
+						INSTANCE, name);
+		} catch (JMException e) {
+			throw new IllegalStateException("Can't register the metrics", e);
+		}
+	}
+
+	/** Start the Flight Recorder event of an operation */
+	public PatternEvent begin() {
+		PatternEvent event = new PatternEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Return the start time of an operation to give to end, or 0 if the
+	 * latencies are not recorded
+	 */
+	public long start() {
+		return this.enabled ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Return the number of bytes allocated so far by the current thread, or
+	 * -1 if nothing is measured (or the JVM can't tell). Give it to end to
+	 * record the bytes allocated by a generation (by the current thread
+	 * only, not by the threads it hands work to).
+	 */
+	public long allocatedBytes(PatternEvent event) {
+		if (this.threads == null || !(this.enabled || event.isEnabled()))
+			return -1;
+		return this.threads.getThreadAllocatedBytes(Thread.currentThread()
+				.getId());
+	}
+
+	/**
+	 * Record the end of an operation on a pattern of elements elements
+	 * started at start (see start) with event (see begin)
+	 */
+	public void end(int operation, long start, PatternEvent event,
+			String pattern, long elements) {
+		end(operation, start, event, pattern, elements, -1);
+	}
+
+	/**
+	 * Record the end of an operation (as end), given the bytes allocated by
+	 * the current thread when it started (see allocatedBytes, -1 if unknown)
+	 */
+	public void end(int operation, long start, PatternEvent event,
+			String pattern, long elements, long allocatedBefore) {
+		if (start != 0)
+			this.histograms[operation].record(System.nanoTime() - start);
+		long allocated = -1;
+		if (allocatedBefore >= 0)
+			allocated = this.threads.getThreadAllocatedBytes(Thread
+					.currentThread().getId()) - allocatedBefore;
+		if (operation == GENERATION && start != 0) {
+			this.lastGenerationElements = elements;
+			this.lastGenerationBytesAllocated = allocated;
+		}
+		event.end();
+		if (event.shouldCommit()) {
+			event.operation = OPERATIONS[operation];
+			event.pattern = pattern;
+			event.elements = elements;
+			event.bytesAllocated = allocated;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Report the statistics of cache (hits, misses, evictions and bytes) with
+	 * the metrics
+	 */
+	public void setPatternCache(PatternCache cache) {
+		this.cache = cache;
+	}
+
+	/** Return the latencies of an operation */
+	public LatencyHistogram getHistogram(int operation) {
+		return this.histograms[operation];
+	}
+
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public LatencyHistogram getGeneration() {
+		return this.histograms[GENERATION];
+	}
+
+	public LatencyHistogram getTransform() {
+		return this.histograms[TRANSFORM];
+	}
+
+	public LatencyHistogram getPaint() {
+		return this.histograms[PAINT];
+	}
+
+	public LatencyHistogram getHitTest() {
+		return this.histograms[HIT_TEST];
+	}
+
+	public long getLastGenerationElements() {
+		return this.lastGenerationElements;
+	}
+
+	public long getLastGenerationBytesAllocated() {
+		return this.lastGenerationBytesAllocated;
+	}
+
+	public long getCacheHits() {
+		PatternCache cache = this.cache;
+		return (cache != null) ? cache.getHits() : -1;
+	}
+
+	public long getCacheMisses() {
+		PatternCache cache = this.cache;
+		return (cache != null) ? cache.getMisses() : -1;
+	}
+
+	public long getCacheEvictions() {
+		PatternCache cache = this.cache;
+		return (cache != null) ? cache.getEvictions() : -1;
+	}
+
+	public long getCacheBytes() {
+		PatternCache cache = this.cache;
+		return (cache != null) ? cache.getBytes() : -1;
+	}
+
+	public void reset() {
+		for (LatencyHistogram histogram : this.histograms) {
+			histogram.reset();
+		}
+		this.lastGenerationElements = 0;
+		this.lastGenerationBytesAllocated = -1;
+	}
+}
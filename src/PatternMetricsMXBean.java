@@ -0,0 +1,65 @@
+/**
+ * The management interface of PatternMetrics: the latencies of the
+ * operations on the patterns, the size of the last pattern generated and the
+ * statistics of the cache of the patterns.
+ */
+
+public interface PatternMetricsMXBean {
+
+	/** Are the latencies recorded? */
+	boolean isEnabled();
+
+	/** Start (true) or stop (false) recording the latencies */
+	void setEnabled(boolean enabled);
+
+	/** Return the latencies of the generations of patterns */
+	LatencyHistogram getGeneration();
+
+	/** Return the latencies of the color transforms */
+	LatencyHistogram getTransform();
+
+	/** Return the latencies of the paints of the view */
+	LatencyHistogram getPaint();
+
+	/** Return the latencies of the hit tests */
+	LatencyHistogram getHitTest();
+
+	/** Return the number of disks, rows or points of the last pattern generated */
+	long getLastGenerationElements();
+
+	/**
+	 * Return the number of bytes allocated by the thread that generated the
+	 * last pattern, while generating it (-1 if unknown). The bytes allocated
+	 * by the threads it handed work to (the walks of a parallel chaos game or
+	 * iterated function system, the tiles of TiledRasterizer) are not
+	 * counted.
+	 */
+	long getLastGenerationBytesAllocated();
+
+	/**
+	 * Return the number of patterns found in the cache of the patterns (-1 if
+	 * there is no cache)
+	 */
+	long getCacheHits();
+
+	/**
+	 * Return the number of patterns not found in the cache of the patterns
+	 * (-1 if there is no cache)
+	 */
+	long getCacheMisses();
+
+	/**
+	 * Return the number of patterns forgotten by the cache of the patterns to
+	 * make room for others (-1 if there is no cache)
+	 */
+	long getCacheEvictions();
+
+	/**
+	 * Return the number of bytes of the patterns in the cache of the patterns
+	 * (-1 if there is no cache)
+	 */
+	long getCacheBytes();
+
+	/** Forget all of the latencies recorded */
+	void reset();
+}
@@ -0,0 +1,114 @@
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * A bitmap with one bit per pixel of a width x height area.<br>
+ * The bits are packed 64 to a long, row after row, so a 400 x 300 window
+ * takes less than 15 KB whatever the number of elements drawn in it.
+ * Locations outside of the area are never set.
+ */
+
+public class PixelBitmap {
+
+	// size of the area covered by this bitmap
+	private int width;
+
+	private int height;
+
+	// the bits, row after row
+	private long[] words;
+
+	/** Create a bitmap for a width x height area with all of its bits clear */
+	public PixelBitmap(int width, int height) {
+		if (width < 0 || height < 0)
+			throw new IllegalArgumentException("Invalid size: " + width + "x"
+					+ height);
+		this.width = width;
+		this.height = height;
+		this.words = new long[(int) (((long) width * height + 63) / 64)];
+	}
+
+	/** Return the width of the area covered by this bitmap */
+	public int getWidth() {
+		return this.width;
+	}
+
+	/** Return the height of the area covered by this bitmap */
+	public int getHeight() {
+		return this.height;
+	}
+
+	/** Return the number of bytes of the bits of this bitmap */
+	public long getBytes() {
+		return 8L * this.words.length;
+	}
+
+	/** Set the bit at (x,y). Do nothing if (x,y) is outside of the area. */
+	public void set(int x, int y) {
+		if (x < 0 || x >= this.width || y < 0 || y >= this.height)
+			return;
+		long bit = (long) y * this.width + x;
+		this.words[(int) (bit >>> 6)] |= 1L << bit;
+	}
+
+	/**
+	 * Set the bits of all of the pixels within radius of (x,y), i.e. the
+	 * pixels (px,py) such that (px-x)^2 + (py-y)^2 <= radius^2
+	 */
+	public void setDisk(int x, int y, int radius) {
+		for (int dy = -radius; dy <= radius; dy++) {
+			for (int dx = -radius; dx <= radius; dx++) {
+				if (dx * dx + dy * dy <= radius * radius)
+					set(x + dx, y + dy);
+			}
+		}
+	}
+
+	/** Is the bit at (x,y) set? Return false if (x,y) is outside of the area. */
+	public boolean get(int x, int y) {
+		if (x < 0 || x >= this.width || y < 0 || y >= this.height)
+			return false;
+		long bit = (long) y * this.width + x;
+		return (this.words[(int) (bit >>> 6)] & (1L << bit)) != 0;
+	}
+
+	/**
+	 * Set all of the bits that are set in other<br>
+	 * Precondition: other covers an area of the same size as this bitmap
+	 */
+	public void or(PixelBitmap other) {
+		if (other.width != this.width || other.height != this.height)
+			throw new IllegalArgumentException("Expected a " + this.width + "x"
+					+ this.height + " bitmap, got " + other.width + "x"
+					+ other.height);
+		for (int i = 0; i < this.words.length; i++) {
+			this.words[i] |= other.words[i];
+		}
+	}
+
+	/** Return the number of longs holding the bits */
+	public int getNumberOfWords() {
+		return this.words.length;
+	}
+
+	/**
+	 * Write the longs holding the bits (see getNumberOfWords) to out, from its
+	 * position
+	 */
+	public void copyTo(LongBuffer out) {
+		out.put(this.words);
+	}
+
+	/**
+	 * Read the longs holding the bits (see getNumberOfWords) from in, from its
+	 * position (e.g. longs written by copyTo)
+	 */
+	public void copyFrom(LongBuffer in) {
+		in.get(this.words);
+	}
+
+	/** Clear all of the bits */
+	public void clear() {
+		Arrays.fill(this.words, 0L);
+	}
+}
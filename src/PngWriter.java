@@ -0,0 +1,138 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a PNG image (8 bit RGBA, not interlaced) row after row.<br>
+ * Each row is compressed as soon as it is given, and the compressed data is
+ * written in IDAT chunks of at most CHUNK_SIZE bytes, so the image never has
+ * to be held in memory, whatever its size.
+ */
+
+public class PngWriter {
+
+	/** Maximum size of the data of an IDAT chunk, in bytes */
+	public static final int CHUNK_SIZE = 1 << 16;
+
+	// the PNG signature
+	private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r',
+			'\n', 0x1A, '\n' };
+
+	// the filter byte at the start of each row (no filter)
+	private static final byte[] NO_FILTER = { 0 };
+
+	// where the image is written
+	private DataOutputStream out;
+
+	// size of the image
+	private int width;
+
+	private int height;
+
+	// number of rows written so far
+	private int rows;
+
+	// compresses the rows (each with its filter byte)
+	private Deflater deflater = new Deflater();
+
+	// compressed data waiting to be written in an IDAT chunk
+	private byte[] chunk = new byte[CHUNK_SIZE];
+
+	private int chunkLength;
+
+	/**
+	 * Start writing a width x height image to out (the signature and the
+	 * header are written right away)
+	 */
+	public PngWriter(OutputStream out, int width, int height)
+			throws IOException {
+		if (width <= 0 || height <= 0 || (long) width * 4 + 1 > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Invalid size: " + width + "x"
+					+ height);
+		this.out = new DataOutputStream(out);
+		this.width = width;
+		this.height = height;
+		this.out.write(SIGNATURE);
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(header);
+		data.writeInt(width);
+		data.writeInt(height);
+		data.writeByte(8); // bits per sample
+		data.writeByte(6); // truecolor with alpha
+		data.writeByte(0); // deflate
+		data.writeByte(0); // adaptive filtering
+		data.writeByte(0); // not interlaced
+		writeChunk("IHDR", header.toByteArray(), header.size());
+	}
+
+	/**
+	 * Write the next row of the image: 4 bytes (red, green, blue, alpha) per
+	 * pixel, from left to right<br>
+	 * Precondition: rgba has at least 4 * width bytes
+	 */
+	public void writeRow(byte[] rgba) throws IOException {
+		if (this.rows == this.height)
+			throw new IllegalStateException("All of the " + this.height
+					+ " rows are written");
+		this.deflater.setInput(NO_FILTER);
+		deflate();
+		this.deflater.setInput(rgba, 0, 4 * this.width);
+		deflate();
+		this.rows++;
+	}
+
+	/**
+	 * Write the end of the image and close the output stream<br>
+	 * Precondition: all of the rows have been written
+	 */
+	public void close() throws IOException {
+		if (this.rows != this.height)
+			throw new IllegalStateException("Only " + this.rows + " of the "
+					+ this.height + " rows are written");
+		this.deflater.finish();
+		while (!this.deflater.finished()) {
+			fill();
+		}
+		flushChunk();
+		this.deflater.end();
+		writeChunk("IEND", new byte[0], 0);
+		this.out.close();
+	}
+
+	// compress all of the input of the deflater
+	private void deflate() throws IOException {
+		while (!this.deflater.needsInput()) {
+			fill();
+		}
+	}
+
+	// compress into the chunk, and write the chunk if it is full
+	private void fill() throws IOException {
+		this.chunkLength += this.deflater.deflate(this.chunk,
+				this.chunkLength, CHUNK_SIZE - this.chunkLength);
+		if (this.chunkLength == CHUNK_SIZE)
+			flushChunk();
+	}
+
+	private void flushChunk() throws IOException {
+		if (this.chunkLength > 0)
+			writeChunk("IDAT", this.chunk, this.chunkLength);
+		this.chunkLength = 0;
+	}
+
+	// write a chunk of the given type with the first length bytes of data
+	private void writeChunk(String type, byte[] data, int length)
+			throws IOException {
+		byte[] typeBytes = type.getBytes("US-ASCII");
+		CRC32 crc = new CRC32();
+		crc.update(typeBytes);
+		crc.update(data, 0, length);
+		this.out.writeInt(length);
+		this.out.write(typeBytes);
+		this.out.write(data, 0, length);
+		this.out.writeInt((int) crc.getValue());
+	}
+}
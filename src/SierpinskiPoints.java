@@ -0,0 +1,247 @@
+import java.awt.Color;
+import java.nio.ShortBuffer;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The points of a Sierpinski triangle, stored as a point cloud.<br>
+ * The coordinates of the centers of the points are kept in two parallel
+ * buffers of shorts (arrays, or a file mapped in memory, see PatternFile)
+ * and all of the points share the same color (slot 0 of a
+ * Palette, so changing it is a rotation of the palette). A point costs 4
+ * bytes instead of a whole Oval object, so tens of millions of points fit in a
+ * few hundred MB.<br>
+ * The pixels covered by the points are also recorded in a PixelBitmap as the
+ * points are added, so that finding whether a location is part of the
+ * triangle takes constant time whatever the number of points.<br>
+ * Points can be added by one thread while other threads read the cloud: the
+ * number of points is published after the points themselves, so a reader
+ * only sees points that are completely written.
+ */
+
+public class SierpinskiPoints implements Pattern {
+
+	/** Diameter of the circle displayed at each point */
+	public static final int POINT_DIAMETER = 2;
+
+	// x and y coordinates of the center of each point
+	private ShortBuffer xs;
+
+	private ShortBuffer ys;
+
+	// number of points stored so far (written after the points)
+	private volatile int size;
+
+	// slot 0 is the color shared by all of the points
+	private AtomicReference<Palette> palette;
+
+	// the pixels covered by the points
+	private PixelBitmap coverage;
+
+	/**
+	 * Create an empty point cloud that can hold up to capacity points in a
+	 * width x height area. The points have the color of slot 0 of palette.
+	 */
+	public SierpinskiPoints(int capacity, Palette palette, int width, int height) {
+		if (capacity < 0)
+			throw new IllegalArgumentException("Negative capacity: " + capacity);
+		this.xs = ShortBuffer.allocate(capacity);
+		this.ys = ShortBuffer.allocate(capacity);
+		this.palette = new AtomicReference<Palette>(palette);
+		this.coverage = new PixelBitmap(width, height);
+	}
+
+	/**
+	 * Create a full point cloud from the coordinates of the centers of its
+	 * points and the pixels they cover (the arrays are not copied). The
+	 * points have the color of slot 0 of palette.<br>
+	 * Precondition: xs and ys have the same length and coverage has the bits
+	 * of the pixels within POINT_DIAMETER / 2 of each point set
+	 */
+	public SierpinskiPoints(short[] xs, short[] ys, PixelBitmap coverage,
+			Palette palette) {
+		this(ShortBuffer.wrap(xs), ShortBuffer.wrap(ys), coverage, palette);
+	}
+
+	/**
+	 * Create a full point cloud from the coordinates of the centers of its
+	 * points (from 0 to the limit of each buffer, e.g. read-only views of a
+	 * file mapped in memory: the points are not copied) and the pixels they
+	 * cover. The points have the color of slot 0 of palette.<br>
+	 * Precondition: xs and ys have the same limit and coverage has the bits
+	 * of the pixels within POINT_DIAMETER / 2 of each point set
+	 */
+	public SierpinskiPoints(ShortBuffer xs, ShortBuffer ys,
+			PixelBitmap coverage, Palette palette) {
+		if (xs.limit() != ys.limit())
+			throw new IllegalArgumentException("Expected as many x as y: "
+					+ xs.limit() + " x, " + ys.limit() + " y");
+		this.xs = xs;
+		this.ys = ys;
+		this.size = xs.limit();
+		this.coverage = coverage;
+		this.palette = new AtomicReference<Palette>(palette);
+	}
+
+	/**
+	 * Add a point centered at (x,y)<br>
+	 * Precondition: the cloud is not full and x and y fit in a short
+	 */
+	public void add(int x, int y) {
+		if (this.size == this.xs.limit())
+			throw new IllegalStateException("The point cloud is full ("
+					+ this.size + " points)");
+		this.xs.put(this.size, (short) x);
+		this.ys.put(this.size, (short) y);
+		this.coverage.setDisk(x, y, POINT_DIAMETER / 2);
+		this.size++;
+	}
+
+	/**
+	 * Add the n points centered at (xs[i], ys[i]) for 0 <= i < n. The points
+	 * are published all at once, after they are all written.<br>
+	 * Precondition: there is room for n more points in the cloud
+	 */
+	public void addAll(short[] xs, short[] ys, int n) {
+		int start = this.size;
+		if (n > this.xs.limit() - start)
+			throw new IllegalStateException("No room for " + n
+					+ " more points (" + start + " of " + this.xs.limit() + ")");
+		this.xs.put(start, xs, 0, n);
+		this.ys.put(start, ys, 0, n);
+		for (int i = 0; i < n; i++) {
+			this.coverage.setDisk(xs[i], ys[i], POINT_DIAMETER / 2);
+		}
+		this.size = start + n;
+	}
+
+	/**
+	 * Add the n points centered at (xs[i], ys[i]) for 0 <= i < n, that cover
+	 * the pixels set in coverage. The points are published all at once, after
+	 * they are all written.<br>
+	 * Precondition: there is room for n more points in the cloud and coverage
+	 * has the bits of the pixels within POINT_DIAMETER / 2 of each of the n
+	 * points set (and no others)
+	 */
+	public void addAll(short[] xs, short[] ys, int n, PixelBitmap coverage) {
+		int start = this.size;
+		if (n > this.xs.limit() - start)
+			throw new IllegalStateException("No room for " + n
+					+ " more points (" + start + " of " + this.xs.limit() + ")");
+		this.xs.put(start, xs, 0, n);
+		this.ys.put(start, ys, 0, n);
+		this.coverage.or(coverage);
+		this.size = start + n;
+	}
+
+	/**
+	 * Is (x,y) within one of the points? (i.e. at a distance less than or
+	 * equal to POINT_DIAMETER / 2 of the center of one of the points)
+	 */
+	public boolean contains(int x, int y) {
+		int size = this.size; // read first, see addAll
+		return size > 0 && this.coverage.get(x, y);
+	}
+
+	/** Return the number of points in this cloud */
+	public int size() {
+		return this.size;
+	}
+
+	/** Return the maximum number of points this cloud can hold */
+	public int capacity() {
+		return this.xs.limit();
+	}
+
+	/** Return the x coordinate of the center of the i-th point */
+	public int getX(int i) {
+		checkIndex(i);
+		return this.xs.get(i);
+	}
+
+	/** Return the y coordinate of the center of the i-th point */
+	public int getY(int i) {
+		checkIndex(i);
+		return this.ys.get(i);
+	}
+
+	/**
+	 * Return the x coordinates of the centers of the points (a read-only view
+	 * of the first size() coordinates, not a copy)
+	 */
+	public ShortBuffer getXs() {
+		return this.xs.asReadOnlyBuffer().limit(this.size);
+	}
+
+	/**
+	 * Return the y coordinates of the centers of the points (a read-only view
+	 * of the first size() coordinates, not a copy)
+	 */
+	public ShortBuffer getYs() {
+		return this.ys.asReadOnlyBuffer().limit(this.size);
+	}
+
+	/** Return the pixels covered by the points (not a copy) */
+	public PixelBitmap getCoverage() {
+		return this.coverage;
+	}
+
+	/** Return the color of all of the points */
+	public Color getColor() {
+		return this.palette.get().get(0);
+	}
+
+	/** Return the palette of the points (slot 0 is their color) */
+	public Palette getPalette() {
+		return this.palette.get();
+	}
+
+	/**
+	 * Return the number of bytes of the points (their whole capacity) and of
+	 * the pixels they cover. The points of a file mapped in memory are not
+	 * counted: they are paged from the file as they are needed.
+	 */
+	public long getBytes() {
+		long points = this.xs.isDirect() ? 0 : 4L * this.xs.limit();
+		return points + this.coverage.getBytes();
+	}
+
+	/** Give the points the next color of the palette */
+	public void changeColors() {
+		this.palette.updateAndGet(Palette::rotated);
+	}
+
+	/**
+	 * Return the color of the triangle at location (x,y). If (x,y) is not
+	 * part of the triangle, return null.
+	 */
+	public Color getColorAt(int x, int y) {
+		return contains(x, y) ? getColor() : null;
+	}
+
+	/**
+	 * Write slot 0 in raster at each pixel covered by a point, from (left,
+	 * top) included to (right, bottom) excluded. Only the pixels of the area
+	 * are visited, whatever the number of points.
+	 */
+	public void rasterize(IndexedRaster raster, int left, int top, int right,
+			int bottom) {
+		int size = this.size; // read first, see addAll
+		raster.clear(left, top, right, bottom);
+		if (size == 0)
+			return;
+		right = Math.min(right, this.coverage.getWidth());
+		bottom = Math.min(bottom, this.coverage.getHeight());
+		for (int y = top; y < bottom; y++) {
+			for (int x = left; x < right; x++) {
+				if (this.coverage.get(x, y))
+					raster.set(x, y, 1);
+			}
+		}
+	}
+
+	private void checkIndex(int i) {
+		if (i < 0 || i >= this.size)
+			throw new IndexOutOfBoundsException("Index: " + i + ", Size: "
+					+ this.size);
+	}
+}
@@ -0,0 +1,160 @@
+import java.awt.Color;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * An exact Sierpinski triangle, rasterized directly over a pixel grid.<br>
+ * The rows of Pascal's triangle modulo 2 form a Sierpinski triangle: the
+ * entry j of row n (0 <= j <= n) is odd if and only if (j & (n - j)) == 0. The
+ * triangle with a top corner, a bottom left corner and a bottom right corner
+ * is covered with the first 2^k rows of Pascal's triangle (2^k >= the height
+ * of the triangle): each pixel falls on one entry, and is part of the
+ * Sierpinski triangle if that entry is odd.<br>
+ * This takes one test per pixel and no point at all, and the result is the
+ * same every time. The pixels of the triangle are kept in a PixelBitmap, so
+ * finding whether a location is part of the triangle is a single bit lookup.
+ * All of the pixels have the color of slot 0 of a Palette.
+ */
+
+public class SierpinskiRaster implements Pattern {
+
+	// the pixels of the triangle
+	private PixelBitmap pixels;
+
+	// slot 0 is the color of the triangle
+	private AtomicReference<Palette> palette;
+
+	/**
+	 * Rasterize the Sierpinski triangle with corners (topX, topY), (leftX,
+	 * bottomY) and (rightX, bottomY) in a width x height area: the triangle
+	 * goes from the middle of the top edge of pixel (topX, topY) to the
+	 * bottom outer corners of pixels (leftX, bottomY) and (rightX, bottomY).
+	 * The triangle has the color of slot 0 of palette.<br>
+	 * Precondition: topY < bottomY and leftX <= topX <= rightX
+	 */
+	public SierpinskiRaster(int topX, int topY, int leftX, int rightX,
+			int bottomY, int width, int height, Palette palette) {
+		if (topY >= bottomY || leftX > topX || topX > rightX)
+			throw new IllegalArgumentException("Invalid triangle: top ("
+					+ topX + "," + topY + "), bottom " + leftX + " to "
+					+ rightX + " at " + bottomY);
+		this.pixels = new PixelBitmap(width, height);
+		this.palette = new AtomicReference<Palette>(palette);
+		fill(this.pixels, 2L * topX + 1, 2L * topY, 2L * leftX,
+				2L * rightX + 2, 2L * bottomY + 2);
+	}
+
+	/**
+	 * Create a triangle from its pixels (not copied, e.g. read from a file).
+	 * The triangle has the color of slot 0 of palette.
+	 */
+	public SierpinskiRaster(PixelBitmap pixels, Palette palette) {
+		this.pixels = pixels;
+		this.palette = new AtomicReference<Palette>(palette);
+	}
+
+	/**
+	 * Rasterize the Sierpinski triangle that fills a width x height area (top
+	 * middle, bottom left and bottom right corners, as in
+	 * GraphicsElements.createASierpinskiTriangle). The pixels are the same as
+	 * those of a SierpinskiZoom of the same size at zoom level 0.
+	 */
+	public static SierpinskiRaster fit(int width, int height, Palette palette) {
+		PixelBitmap pixels = new PixelBitmap(width, height);
+		fill(pixels, width, 0, 0, 2L * width, 2L * height);
+		return new SierpinskiRaster(pixels, palette);
+	}
+
+	/**
+	 * Set in pixels the pixels of the Sierpinski triangle with corners (topX,
+	 * topY), (leftX, bottomY) and (rightX, bottomY), given in half pixels
+	 * (pixel (x,y) goes from (2x, 2y) to (2x + 2, 2y + 2)).<br>
+	 * With s and r the weights of the bottom left and bottom right corners
+	 * in the center of a pixel, the pixel is on the entry j = floor(r
+	 * 2^depth) of Pascal's triangle with n - j = floor(s 2^depth), and is part
+	 * of the triangle if (floor(s 2^depth) & floor(r 2^depth)) == 0 (as in
+	 * SierpinskiZoom). The test is
+	 * the same on both sides of the triangle, so a symmetric triangle gives
+	 * symmetric pixels.
+	 */
+	private static void fill(PixelBitmap pixels, long topX, long topY,
+			long leftX, long rightX, long bottomY) {
+		// 2^depth rows of Pascal's triangle, at least one per row of pixels
+		long triangleHeight = bottomY - topY;
+		int depth = 64 - Long.numberOfLeadingZeros((triangleHeight + 1) / 2 - 1);
+		long rows = 1L << depth;
+		long scale = (rightX - leftX) * triangleHeight;
+
+		int firstY = (int) Math.max(topY / 2, 0);
+		int lastY = (int) Math.min((bottomY - 1) / 2, pixels.getHeight() - 1);
+		for (int y = firstY; y <= lastY; y++) {
+			long dy = 2 * y + 1 - topY;
+			for (int x = 0; x < pixels.getWidth(); x++) {
+				// s and r of the center of the pixel, times scale
+				long rTimes = (2 * x + 1 - topX) * triangleHeight - dy
+						* (leftX - topX);
+				long sTimes = dy * (rightX - leftX) - rTimes;
+				if (rTimes < 0 || sTimes < 0)
+					continue;
+				long i = (sTimes << depth) / scale;
+				long j = (rTimes << depth) / scale;
+				if (i < rows && j < rows && (i & j) == 0)
+					pixels.set(x, y);
+			}
+		}
+	}
+
+	/** Is (x,y) part of the triangle? */
+	public boolean contains(int x, int y) {
+		return this.pixels.get(x, y);
+	}
+
+	/** Return the pixels of the triangle (not a copy) */
+	public PixelBitmap getPixels() {
+		return this.pixels;
+	}
+
+	/** Return the color of the triangle */
+	public Color getColor() {
+		return this.palette.get().get(0);
+	}
+
+	/** Return the palette of the triangle (slot 0 is its color) */
+	public Palette getPalette() {
+		return this.palette.get();
+	}
+
+	/** Return the number of bytes of the pixels of the triangle */
+	public long getBytes() {
+		return this.pixels.getBytes();
+	}
+
+	/** Give the triangle the next color of the palette */
+	public void changeColors() {
+		this.palette.updateAndGet(Palette::rotated);
+	}
+
+	/**
+	 * Return the color of the triangle at location (x,y). If (x,y) is not
+	 * part of the triangle, return null.
+	 */
+	public Color getColorAt(int x, int y) {
+		return contains(x, y) ? getColor() : null;
+	}
+
+	/**
+	 * Write slot 0 in raster at each pixel of the triangle from (left, top)
+	 * included to (right, bottom) excluded
+	 */
+	public void rasterize(IndexedRaster raster, int left, int top, int right,
+			int bottom) {
+		raster.clear(left, top, right, bottom);
+		right = Math.min(right, this.pixels.getWidth());
+		bottom = Math.min(bottom, this.pixels.getHeight());
+		for (int y = top; y < bottom; y++) {
+			for (int x = left; x < right; x++) {
+				if (this.pixels.get(x, y))
+					raster.set(x, y, 1);
+			}
+		}
+	}
+}
@@ -0,0 +1,311 @@
+import java.awt.Color;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * A view of the Sierpinski triangle of a width x height window that can be
+ * zoomed in (by powers of 2) and panned.<br>
+ * At zoom level z, the triangle is 2^z times larger than the window, and the
+ * view shows the width x height pixels of that large triangle starting at
+ * (viewX, viewY). A pixel is part of the triangle if its location in the
+ * triangle, written as s times the left side plus r times the right side
+ * (0 <= s, r and s + r < 1), has no binary digit set in both s and r: with
+ * 2^d rows of detail, that is (floor(s 2^d) & floor(r 2^d)) == 0. The test is
+ * done in integers only (d grows with z), so the triangle stays exact however
+ * far the view is zoomed in, and only the pixels of the view are computed.<br>
+ * The view is computed in tiles of TILE_SIZE x TILE_SIZE pixels of the large
+ * triangle, keyed by (zoom, tile column, tile row). The last
+ * MAXIMUM_NUMBER_OF_TILES tiles used are kept in a least recently used
+ * cache, so panning back over a visited area takes no computation, and the
+ * memory used stays the same however far the view is zoomed in.<br>
+ * A SierpinskiZoom never changes: zooming or panning it returns a new
+ * SierpinskiZoom with the new zoom level and location (sharing the cache of
+ * tiles), so a thread rasterizing a view while the user drags it always sees
+ * a consistent view, without any lock.<br>
+ * All of the pixels have the color of slot 0 of a Palette, given by a
+ * supplier (e.g. the palette of the points of the triangle, so that the zoom
+ * follows their color changes).
+ */
+
+public class SierpinskiZoom implements Pattern {
+
+	/** Side of a tile, in pixels */
+	public static final int TILE_SIZE = 64;
+
+	/** Number of tiles kept in the cache (512 KB of bitmaps) */
+	public static final int MAXIMUM_NUMBER_OF_TILES = 1024;
+
+	/**
+	 * Largest zoom level (the triangle is then 2^MAXIMUM_ZOOM times larger
+	 * than the window)
+	 */
+	public static final int MAXIMUM_ZOOM = 30;
+
+	// size of the view (the triangle fills that area at zoom level 0)
+	private final int width;
+
+	private final int height;
+
+	// slot 0 is the color of the triangle
+	private final Supplier<Palette> palette;
+
+	// the zoom level and location of the view
+	private final View view;
+
+	// 2^depth rows of detail at zoom level 0 (2^depth >= height)
+	private final int depth;
+
+	// the last tiles used, least recently used first (shared by the views
+	// zoomed and panned from the same view)
+	private final LinkedHashMap<TileKey, PixelBitmap> tiles;
+
+	/**
+	 * Create a view of the Sierpinski triangle that fills a width x height
+	 * area (top middle, bottom left and bottom right corners) at zoom level
+	 * 0. The triangle has the color of slot 0 of the palette given by palette.
+	 */
+	public SierpinskiZoom(int width, int height, Supplier<Palette> palette) {
+		if (width <= 0 || height <= 0)
+			throw new IllegalArgumentException("Invalid size: " + width + "x"
+					+ height);
+		this.width = width;
+		this.height = height;
+		this.palette = palette;
+		this.view = new View(0, 0, 0);
+		this.depth = 32 - Integer.numberOfLeadingZeros(height - 1);
+		this.tiles = new LinkedHashMap<TileKey, PixelBitmap>(16, 0.75f, true) {
+			protected boolean removeEldestEntry(
+					Map.Entry<TileKey, PixelBitmap> eldest) {
+				return size() > MAXIMUM_NUMBER_OF_TILES;
+			}
+		};
+	}
+
+	// the view of zoom with the zoom level and location of view
+	private SierpinskiZoom(SierpinskiZoom zoom, View view) {
+		this.width = zoom.width;
+		this.height = zoom.height;
+		this.palette = zoom.palette;
+		this.view = view;
+		this.depth = zoom.depth;
+		this.tiles = zoom.tiles;
+	}
+
+	/** Return the zoom level of the view (0 to MAXIMUM_ZOOM) */
+	public int getZoom() {
+		return this.view.zoom;
+	}
+
+	/** Return the x coordinate of the view in the zoomed triangle */
+	public long getViewX() {
+		return this.view.x;
+	}
+
+	/** Return the y coordinate of the view in the zoomed triangle */
+	public long getViewY() {
+		return this.view.y;
+	}
+
+	/**
+	 * Return this view zoomed in (steps > 0) or out (steps < 0) by steps
+	 * levels, keeping the point of the triangle at (x,y) in the view where it
+	 * is. The zoom level stays within 0 and MAXIMUM_ZOOM.
+	 */
+	public SierpinskiZoom zoomedAt(int x, int y, int steps) {
+		View view = this.view;
+		int zoom = Math.max(0, Math.min(view.zoom + steps, MAXIMUM_ZOOM));
+		int shift = zoom - view.zoom;
+		if (shift > 0)
+			return viewAt(zoom, ((view.x + x) << shift) - x,
+					((view.y + y) << shift) - y);
+		return viewAt(zoom, ((view.x + x) >> -shift) - x,
+				((view.y + y) >> -shift) - y);
+	}
+
+	/**
+	 * Return this view with the triangle moved by (dx, dy) pixels. The view
+	 * stays within the zoomed triangle.
+	 */
+	public SierpinskiZoom panned(int dx, int dy) {
+		return viewAt(this.view.zoom, this.view.x - dx, this.view.y - dy);
+	}
+
+	// the view at (x,y) in the triangle zoomed zoom times, kept within the
+	// bounding box of the zoomed triangle
+	private SierpinskiZoom viewAt(int zoom, long x, long y) {
+		long maxX = ((long) this.width << zoom) - this.width;
+		long maxY = ((long) this.height << zoom) - this.height;
+		return new SierpinskiZoom(this, new View(zoom, Math.max(0, Math.min(
+				x, maxX)), Math.max(0, Math.min(y, maxY))));
+	}
+
+	/**
+	 * Is the pixel (x,y) of the triangle zoomed zoom times part of the
+	 * triangle?
+	 */
+	private boolean contains(int zoom, long x, long y) {
+		// (s, r) of the center of the pixel (x + 1/2, y + 1/2) / 2^zoom, times
+		// 4 width height 2^zoom: r = (x - width / 2 + width y / (2 height)) /
+		// width and s + r = y / height
+		long w = this.width;
+		long h = this.height;
+		long rTimes = 2 * h * (2 * x + 1) - 2 * h * (w << zoom) + w * (2 * y + 1);
+		long sTimes = 2 * w * (2 * y + 1) - rTimes;
+		if (rTimes < 0 || sTimes < 0)
+			return false;
+		// floor(s 2^(depth + zoom)) and floor(r 2^(depth + zoom))
+		long scale = 4 * w * h;
+		long i = (sTimes << this.depth) / scale;
+		long j = (rTimes << this.depth) / scale;
+		long rows = 1L << (this.depth + zoom);
+		return i < rows && j < rows && (i & j) == 0;
+	}
+
+	/**
+	 * Return the tile in column tx and row ty of the triangle zoomed zoom
+	 * times, from the cache or computed (and cached)
+	 */
+	private PixelBitmap getTile(int zoom, long tx, long ty) {
+		TileKey key = new TileKey(zoom, tx, ty);
+		PixelBitmap tile;
+		synchronized (this.tiles) {
+			tile = this.tiles.get(key);
+		}
+		if (tile != null)
+			return tile;
+		// compute the tile outside of the lock (if two threads need the same
+		// tile, both compute it and the results are the same)
+		tile = new PixelBitmap(TILE_SIZE, TILE_SIZE);
+		for (int y = 0; y < TILE_SIZE; y++) {
+			for (int x = 0; x < TILE_SIZE; x++) {
+				if (contains(zoom, tx * TILE_SIZE + x, ty * TILE_SIZE + y))
+					tile.set(x, y);
+			}
+		}
+		synchronized (this.tiles) {
+			this.tiles.put(key, tile);
+		}
+		return tile;
+	}
+
+	/** Return the number of tiles in the cache */
+	public int getNumberOfCachedTiles() {
+		synchronized (this.tiles) {
+			return this.tiles.size();
+		}
+	}
+
+	/** Return the color of the triangle */
+	public Color getColor() {
+		return this.palette.get().get(0);
+	}
+
+	/** Return the palette of the triangle (slot 0 is its color) */
+	public Palette getPalette() {
+		return this.palette.get();
+	}
+
+	/** Return the number of bytes of the tiles in the cache */
+	public long getBytes() {
+		return (long) getNumberOfCachedTiles() * TILE_SIZE * TILE_SIZE / 8;
+	}
+
+	/**
+	 * Return the color of the triangle at location (x,y) of the view. If
+	 * (x,y) is not part of the triangle, return null.
+	 */
+	public Color getColorAt(int x, int y) {
+		if (x < 0 || x >= this.width || y < 0 || y >= this.height)
+			return null;
+		View view = this.view;
+		return contains(view.zoom, view.x + x, view.y + y) ? getColor() : null;
+	}
+
+	/**
+	 * Write slot 0 in raster at each pixel of the view that is part of the
+	 * triangle, from (left, top) included to (right, bottom) excluded. The
+	 * pixels come from the tiles of the zoomed triangle under that area.
+	 */
+	public void rasterize(IndexedRaster raster, int left, int top, int right,
+			int bottom) {
+		raster.clear(left, top, right, bottom);
+		right = Math.min(right, this.width);
+		bottom = Math.min(bottom, this.height);
+		if (left >= right || top >= bottom)
+			return;
+		View view = this.view;
+		int zoom = view.zoom;
+		long viewX = view.x;
+		long viewY = view.y;
+		long firstColumn = Math.floorDiv(viewX + left, TILE_SIZE);
+		long lastColumn = Math.floorDiv(viewX + right - 1, TILE_SIZE);
+		long firstRow = Math.floorDiv(viewY + top, TILE_SIZE);
+		long lastRow = Math.floorDiv(viewY + bottom - 1, TILE_SIZE);
+		for (long ty = firstRow; ty <= lastRow; ty++) {
+			for (long tx = firstColumn; tx <= lastColumn; tx++) {
+				PixelBitmap tile = getTile(zoom, tx, ty);
+				// part of the area covered by this tile
+				int x0 = (int) Math.max(tx * TILE_SIZE - viewX, left);
+				int x1 = (int) Math.min((tx + 1) * TILE_SIZE - viewX, right);
+				int y0 = (int) Math.max(ty * TILE_SIZE - viewY, top);
+				int y1 = (int) Math.min((ty + 1) * TILE_SIZE - viewY, bottom);
+				for (int y = y0; y < y1; y++) {
+					for (int x = x0; x < x1; x++) {
+						if (tile.get((int) (viewX + x - tx * TILE_SIZE),
+								(int) (viewY + y - ty * TILE_SIZE)))
+							raster.set(x, y, 1);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * A view of the triangle: its zoom level and the location of its top left
+	 * corner in the zoomed triangle
+	 */
+	private static class View {
+
+		private final int zoom;
+
+		private final long x;
+
+		private final long y;
+
+		View(int zoom, long x, long y) {
+			this.zoom = zoom;
+			this.x = x;
+			this.y = y;
+		}
+	}
+
+	/** The key of a tile in the cache: its zoom level, column and row */
+	private static class TileKey {
+
+		private int zoom;
+
+		private long column;
+
+		private long row;
+
+		TileKey(int zoom, long column, long row) {
+			this.zoom = zoom;
+			this.column = column;
+			this.row = row;
+		}
+
+		public boolean equals(Object o) {
+			if (!(o instanceof TileKey))
+				return false;
+			TileKey other = (TileKey) o;
+			return this.zoom == other.zoom && this.column == other.column
+					&& this.row == other.row;
+		}
+
+		public int hashCode() {
+			return 31 * (31 * this.zoom + Long.hashCode(this.column))
+					+ Long.hashCode(this.row);
+		}
+	}
+}
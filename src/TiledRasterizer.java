@@ -0,0 +1,94 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Rasterizes a Pattern into an IndexedRaster tile by tile, in parallel.<br>
+ * The raster is split in halves (along its longer side) until the pieces are
+ * at most TILE_SIZE x TILE_SIZE pixels, and the tiles are rasterized by the
+ * threads of a ForkJoinPool. Each tile only visits the elements of the
+ * pattern that intersect it (see Pattern.rasterize). The tiles are areas of
+ * the same raster, so there is nothing to copy once they are all done.
+ */
+
+public class TiledRasterizer {
+
+	/** Maximum side of a tile, in pixels */
+	public static final int TILE_SIZE = 64;
+
+	// the threads rasterizing the tiles
+	private ForkJoinPool pool;
+
+	/** Create a rasterizer running on the common ForkJoinPool */
+	public TiledRasterizer() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/** Create a rasterizer running on the threads of pool */
+	public TiledRasterizer(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Rasterize pattern into all of raster (as pattern.rasterize(raster)),
+	 * and return when all of the tiles are done
+	 */
+	public void rasterize(Pattern pattern, IndexedRaster raster) {
+		this.pool.invoke(new Tiles(pattern, raster, 0, 0, raster.getWidth(),
+				raster.getHeight()));
+	}
+
+	/** The tiles of an area of a raster, from (left, top) to (right, bottom) */
+	private static class Tiles extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private Pattern pattern;
+
+		private IndexedRaster raster;
+
+		private int left;
+
+		private int top;
+
+		private int right;
+
+		private int bottom;
+
+		Tiles(Pattern pattern, IndexedRaster raster, int left, int top,
+				int right, int bottom) {
+			this.pattern = pattern;
+			this.raster = raster;
+			this.left = left;
+			this.top = top;
+			this.right = right;
+			this.bottom = bottom;
+		}
+
+		protected void compute() {
+			int width = this.right - this.left;
+			int height = this.bottom - this.top;
+			if (width <= TILE_SIZE && height <= TILE_SIZE) {
+				this.pattern.rasterize(this.raster, this.left, this.top,
+						this.right, this.bottom);
+			} else if (width >= height) {
+				// split on a tile boundary, so that the tiles are full
+				int middle = this.left + split(width);
+				invokeAll(new Tiles(this.pattern, this.raster, this.left,
+						this.top, middle, this.bottom), new Tiles(this.pattern,
+						this.raster, middle, this.top, this.right, this.bottom));
+			} else {
+				int middle = this.top + split(height);
+				invokeAll(new Tiles(this.pattern, this.raster, this.left,
+						this.top, this.right, middle), new Tiles(this.pattern,
+						this.raster, this.left, middle, this.right, this.bottom));
+			}
+		}
+
+		// return the side of the first half of a side of length size
+		// (a multiple of TILE_SIZE)
+		private static int split(int size) {
+			int tiles = (size + TILE_SIZE - 1) / TILE_SIZE;
+			return (tiles / 2) * TILE_SIZE;
+		}
+	}
+}
@@ -1,14 +1,17 @@
 import javax.swing.*;
+import javax.swing.Timer;
 import java.awt.Color;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
 import java.awt.BorderLayout;
 import java.awt.GridLayout;
 import java.awt.Insets;
 import java.awt.event.*;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
-import java.awt.Graphics2D;
-import java.awt.RenderingHints;
-import uwcse.graphics.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Construct a window to display the graphics elements received from
@@ -18,7 +21,8 @@ import uwcse.graphics.*;
  * or instantiate a ViewWindow object.
  */
 
-public class ViewWindow extends JPanel implements MouseListener, ActionListener {
+public class ViewWindow extends JPanel implements MouseListener,
+		MouseMotionListener, MouseWheelListener, ActionListener {
 
 	/** Width of the inner panel of this ViewWindow */
 	public static final int WINDOW_WIDTH = 400;
@@ -33,7 +37,18 @@ public class ViewWindow extends JPanel implements MouseListener, ActionListener
 
 	public static final int SIERPINSKI = 2;
 
-	private int which;
+	public static final int SIERPINSKI_EXACT = 3;
+
+	public static final int SIERPINSKI_DENSITY = 4;
+
+	public static final int FERN = 5;
+
+	public static final int CARPET = 6;
+
+	public static final int GASKET = 7;
+
+	/** Time between two frames of the color animation (60 frames per second) */
+	public static final int FRAME_MILLISECONDS = 1000 / 60;
 
 	// The frame this ViewWindow is in
 	private JFrame frame;
@@ -47,8 +62,68 @@ public class ViewWindow extends JPanel implements MouseListener, ActionListener
 	// The button to rotate the colors on a GraphicsElements
 	private JButton rotateColors;
 
-	// The list of the graphics elements to display
-	ArrayList graphicsList;
+	// The buttons to save the pattern displayed to a file and to open a
+	// pattern saved in a file (see PatternFile)
+	private JButton save;
+
+	private JButton open;
+
+	// The button to cycle the colors continuously, the timer of the frames
+	// and the frame rate (with the number of dropped frames)
+	private JToggleButton animate;
+
+	private Timer animation;
+
+	private JLabel frameRate;
+
+	// Time of the last frame, of the start of the current second (in
+	// nanoseconds), and frames shown and dropped so far
+	private long lastFrame;
+
+	private long secondStart;
+
+	private int framesThisSecond;
+
+	private long droppedFrames;
+
+	// What is displayed: the kind of pattern, its pattern, its raster and
+	// the zoomed in view of the triangle made of points. The state is an
+	// immutable ViewState swapped as a whole, and the colors of the pattern
+	// are an immutable Palette, so any thread can read it and paint it
+	// without a lock: read it once and use that snapshot.
+	private final AtomicReference<ViewState> view = new AtomicReference<ViewState>(
+			new ViewState(ViewWindow.DISK_PILE, 0, null, null, null, false));
+
+	// The raster of the zoomed in view, and the view it holds (painted on the
+	// event thread only)
+	private IndexedRaster zoomBuffer = new IndexedRaster(WINDOW_WIDTH,
+			WINDOW_HEIGHT);
+
+	private SierpinskiZoom zoomBufferZoom;
+
+	// Last location of the mouse while dragging the zoomed in view
+	private int dragX;
+
+	private int dragY;
+
+	// The background task generating the pattern (null if none)
+	private PatternWorker worker;
+
+	// Rasterizes the raster of the view tile by tile on all of the cores
+	private TiledRasterizer rasterizer = new TiledRasterizer();
+
+	// The last patterns created (with their rasters), and the parameters of
+	// the last pattern created of each kind
+	private PatternCache cache = new PatternCache();
+
+	private PatternCache.Key[] lastKeys;
+
+	// The seed of the patterns of each kind, drawn once, so that a pattern
+	// asked for again with the same size comes from the cache
+	private long[] seeds;
+
+	// Measures the operations on the patterns (see PatternMetrics)
+	private PatternMetrics metrics = PatternMetrics.getInstance();
 
 	// The object that generates the graphics elements to display
 	GraphicsElements graphicsElements = new GraphicsElements();
@@ -72,8 +147,14 @@ public class ViewWindow extends JPanel implements MouseListener, ActionListener
 		// The components making up the window
 		// Radio buttons
 		this.titles = new String[] { "Disk pile", "Checkered board",
-				"Sierpinski Triangle" };
+				"Sierpinski Triangle", "Exact Sierpinski", "Sierpinski density",
+				"Barnsley fern", "Sierpinski carpet", "Pentagon gasket" };
 		this.radioButtons = new JRadioButton[this.titles.length];
+		this.lastKeys = new PatternCache.Key[this.titles.length];
+		this.seeds = new Random().longs(this.titles.length).toArray();
+		// the exact triangle is always the same
+		this.seeds[ViewWindow.SIERPINSKI_EXACT] = 0;
+		this.metrics.setPatternCache(this.cache);
 		// Only one radio button can be selected at a time
 		ButtonGroup buttonGroup = new ButtonGroup();
 		for (int i = 0; i < this.radioButtons.length; i++) {
@@ -86,24 +167,43 @@ public class ViewWindow extends JPanel implements MouseListener, ActionListener
 		this.rotateColors = new JButton("Change colors");
 		this.rotateColors.addActionListener(this);
 
+		// Buttons to save and open patterns
+		this.save = new JButton("Save");
+		this.save.addActionListener(this);
+		this.open = new JButton("Open");
+		this.open.addActionListener(this);
+
+		// Button and timer to animate the colors
+		this.animate = new JToggleButton("Animate");
+		this.animate.addActionListener(this);
+		this.animation = new Timer(FRAME_MILLISECONDS, this);
+		this.frameRate = new JLabel();
+
 		// Place the components in this WindowView
 		JPanel contentPane = new JPanel();
 		contentPane.setLayout(new BorderLayout());
-		// at the bottom (SOUTH)
-		JPanel southPanel = new JPanel(new GridLayout(2, 1));
-		JPanel southPanelFirstRow = new JPanel();
+		// at the bottom (SOUTH): the radio buttons, 3 per row, then the
+		// button
+		JPanel southPanel = new JPanel(new BorderLayout());
+		JPanel southPanelFirstRow = new JPanel(new GridLayout(0, 3));
 		for (int i = 0; i < this.radioButtons.length; i++)
 			southPanelFirstRow.add(this.radioButtons[i]);
-		southPanel.add(southPanelFirstRow);
+		southPanel.add(southPanelFirstRow, BorderLayout.CENTER);
 		JPanel southPanelSecondRow = new JPanel();
 		southPanelSecondRow.add(this.rotateColors);
-		southPanel.add(southPanelSecondRow);
+		southPanelSecondRow.add(this.animate);
+		southPanelSecondRow.add(this.save);
+		southPanelSecondRow.add(this.open);
+		southPanelSecondRow.add(this.frameRate);
+		southPanel.add(southPanelSecondRow, BorderLayout.SOUTH);
 		contentPane.add(southPanel, BorderLayout.SOUTH);
 		// Background color of this WindowView
 		this.setBackground(Color.white);
 		contentPane.add(this, BorderLayout.CENTER);
 		// Send all mouse events to this WindowView
 		this.addMouseListener(this);
+		this.addMouseMotionListener(this);
+		this.addMouseWheelListener(this);
 		// Put everything in a frame
 		this.frame = new JFrame("Doing graphics with loops");
 		this.frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -131,37 +231,62 @@ public class ViewWindow extends JPanel implements MouseListener, ActionListener
 	public void actionPerformed(ActionEvent e) {
 		if (e.getSource() == this.radioButtons[0]) {
 			// Pile of disks
-			this.graphicsList = this.graphicsElements.createAPileOfDisks();
-			this.which = ViewWindow.DISK_PILE;
+			this.select(ViewWindow.DISK_PILE);
 		} else if (e.getSource() == this.radioButtons[1]) {
 			// Checkered board
-			this.graphicsList = this.graphicsElements.createACheckeredBoard();
-			this.which = ViewWindow.CHECKERED_BOARD;
+			this.select(ViewWindow.CHECKERED_BOARD);
 		} else if (e.getSource() == this.radioButtons[2]) {
 			// Create a Sierpinski triangle
-			this.graphicsList = this.graphicsElements
-					.createASierpinskiTriangle();
-			this.which = ViewWindow.SIERPINSKI;
+			this.select(ViewWindow.SIERPINSKI);
+		} else if (e.getSource() == this.radioButtons[3]) {
+			// Create an exact Sierpinski triangle
+			this.select(ViewWindow.SIERPINSKI_EXACT);
+		} else if (e.getSource() == this.radioButtons[4]) {
+			// Create a Sierpinski triangle stored as a density
+			this.select(ViewWindow.SIERPINSKI_DENSITY);
+		} else if (e.getSource() == this.radioButtons[5]) {
+			// Create a Barnsley fern
+			this.select(ViewWindow.FERN);
+		} else if (e.getSource() == this.radioButtons[6]) {
+			// Create a Sierpinski carpet
+			this.select(ViewWindow.CARPET);
+		} else if (e.getSource() == this.radioButtons[7]) {
+			// Create the gasket of a pentagon
+			this.select(ViewWindow.GASKET);
 		} else if (e.getSource() == this.rotateColors) {
 			// Don't do anything if there is no display
-			if (this.graphicsList == null)
+			if (!this.hasDisplay())
 				return;
 
 			// Change the colors of the display
-			switch (this.which) {
-			case ViewWindow.DISK_PILE:
-				this.graphicsList = this.graphicsElements
-						.rotateColorsInPileOfDisks(this.graphicsList);
-				break;
-			case ViewWindow.CHECKERED_BOARD:
-				this.graphicsList = this.graphicsElements
-						.flipColorsInCheckeredBoard(this.graphicsList);
-				break;
-			case ViewWindow.SIERPINSKI:
-				this.graphicsList = this.graphicsElements
-						.changeColorsInSierpinskiTriangle(this.graphicsList);
-				break;
-			}
+			this.changeColors();
+		} else if (e.getSource() == this.save) {
+			// Save the display to a file chosen by the user
+			if (!this.hasDisplay())
+				return;
+			JFileChooser chooser = new JFileChooser();
+			if (chooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION)
+				this.save(chooser.getSelectedFile().toPath());
+			return;
+		} else if (e.getSource() == this.open) {
+			// Display a pattern from a file chosen by the user
+			JFileChooser chooser = new JFileChooser();
+			if (chooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION)
+				this.open(chooser.getSelectedFile().toPath());
+			return;
+		} else if (e.getSource() == this.animate) {
+			// Start or stop cycling the colors
+			if (this.animate.isSelected())
+				this.startAnimation();
+			else
+				this.stopAnimation();
+			return;
+		} else if (e.getSource() == this.animation) {
+			// Next frame of the animation
+			this.countFrame();
+			if (!this.hasDisplay())
+				return;
+			this.changeColors();
 		} else
 			// unknown source
 			return;
@@ -170,46 +295,379 @@ public class ViewWindow extends JPanel implements MouseListener, ActionListener
 		this.repaint();
 	}
 
+	/** Start cycling the colors of the pattern at every frame */
+	private void startAnimation() {
+		this.lastFrame = 0;
+		this.droppedFrames = 0;
+		this.framesThisSecond = 0;
+		this.frameRate.setText("");
+		this.animation.start();
+	}
+
+	/** Stop cycling the colors */
+	private void stopAnimation() {
+		this.animation.stop();
+		this.frameRate.setText("");
+	}
+
+	/**
+	 * Count a frame of the animation. A frame is dropped when the timer
+	 * fires late by a frame or more (the timer merges the late events). The
+	 * frame rate and the dropped frames are displayed once a second.
+	 */
+	private void countFrame() {
+		long now = System.nanoTime();
+		long frame = FRAME_MILLISECONDS * 1000000L;
+		if (this.lastFrame == 0) {
+			this.secondStart = now;
+		} else {
+			long late = (now - this.lastFrame - frame / 2) / frame;
+			if (late > 0)
+				this.droppedFrames += late;
+		}
+		this.lastFrame = now;
+		this.framesThisSecond++;
+		if (now - this.secondStart >= 1000000000L) {
+			this.frameRate.setText(this.framesThisSecond + " fps, "
+					+ this.droppedFrames + " dropped");
+			this.framesThisSecond = 0;
+			this.secondStart = now;
+		}
+	}
+
+	/**
+	 * Change the colors of the pattern displayed (one step). Only the palette
+	 * of the pattern changes, so the display is recolored without being
+	 * rasterized again.
+	 */
+	private void changeColors() {
+		ViewState view = this.view.get();
+		Pattern pattern = view.pattern;
+		PatternEvent event = this.metrics.begin();
+		long start = this.metrics.start();
+		switch (view.which) {
+		case ViewWindow.DISK_PILE:
+			this.graphicsElements.rotateColorsInPileOfDisks((DiskPile) pattern);
+			break;
+		case ViewWindow.CHECKERED_BOARD:
+			this.graphicsElements
+					.flipColorsInCheckeredBoard((CheckeredBoard) pattern);
+			break;
+		case ViewWindow.SIERPINSKI:
+			this.graphicsElements
+					.changeColorsInSierpinskiTriangle((SierpinskiPoints) pattern);
+			break;
+		case ViewWindow.SIERPINSKI_EXACT:
+			this.graphicsElements
+					.changeColorsInSierpinskiTriangle((SierpinskiRaster) pattern);
+			break;
+		case ViewWindow.SIERPINSKI_DENSITY:
+		case ViewWindow.FERN:
+		case ViewWindow.CARPET:
+		case ViewWindow.GASKET:
+			this.graphicsElements
+					.changeColorsInSierpinskiTriangle((DensityBuffer) pattern);
+			break;
+		}
+		this.metrics.end(PatternMetrics.TRANSFORM, start, event,
+				this.titles[view.which], view.elements);
+	}
+
+	/**
+	 * Display the last pattern of the given kind again if it is still in the
+	 * cache (and is not the one displayed). Otherwise, create a new one.
+	 */
+	private void select(int kind) {
+		if (kind != this.view.get().which && this.lastKeys[kind] != null) {
+			PatternCache.Entry entry = this.cache.get(this.lastKeys[kind]);
+			if (entry != null) {
+				this.restore(this.lastKeys[kind], entry);
+				return;
+			}
+		}
+		this.generate(kind);
+	}
+
+	/** Stop generating a pattern (if a pattern is being generated) */
+	private void cancelWorker() {
+		if (this.worker != null) {
+			this.worker.cancel(true);
+			this.worker = null;
+		}
+	}
+
+	/** Display a pattern from the cache, created with the parameters of key */
+	private void restore(PatternCache.Key key, PatternCache.Entry entry) {
+		this.cancelWorker();
+		this.view.set(new ViewState(key.getType(), key.getSize(), entry
+				.getPattern(), entry.getRaster(), null, true));
+		this.repaint();
+	}
+
+	/**
+	 * Save the pattern displayed to file (the points of a Sierpinski triangle,
+	 * not the zoomed in view)
+	 */
+	private void save(Path file) {
+		try {
+			ViewState view = this.view.get();
+			PatternFile.save(view.pattern, view.which, WINDOW_WIDTH,
+					WINDOW_HEIGHT, file);
+		} catch (IOException | IllegalArgumentException e) {
+			JOptionPane.showMessageDialog(this,
+					"Sorry, the pattern could not be saved: " + e, "Error",
+					JOptionPane.ERROR_MESSAGE);
+		}
+	}
+
+	/**
+	 * Display the pattern saved in file. The points of a Sierpinski triangle
+	 * are read from the file as they are needed, not loaded.
+	 */
+	private void open(Path file) {
+		PatternFile saved;
+		try {
+			saved = PatternFile.open(file);
+		} catch (IOException | IllegalArgumentException e) {
+			JOptionPane.showMessageDialog(this,
+					"Sorry, the pattern could not be opened: " + e, "Error",
+					JOptionPane.ERROR_MESSAGE);
+			return;
+		}
+		this.cancelWorker();
+		this.view.set(new ViewState(saved.getType(), saved.getSize(), saved
+				.getPattern(), new IndexedRaster(WINDOW_WIDTH, WINDOW_HEIGHT),
+				null, false));
+		this.radioButtons[saved.getType()].setSelected(true);
+		this.repaint();
+	}
+
+	/**
+	 * Stop generating the previous pattern (if any), ask the user for the size
+	 * of a pattern of the given kind and start generating it in the
+	 * background. The display is cleared until the new pattern shows up. The
+	 * patterns of a kind all have the same seed, so a pattern of a size
+	 * already generated is displayed from the cache if it is still there.
+	 */
+	private void generate(int kind) {
+		this.cancelWorker();
+		int size;
+		switch (kind) {
+		case ViewWindow.DISK_PILE:
+			size = this.graphicsElements
+					.readNumberOfDisks(GraphicsElements.MAXIMUM_NUMBER_OF_PILE_DISKS);
+			break;
+		case ViewWindow.CHECKERED_BOARD:
+			size = this.graphicsElements
+					.readNumberOfRows(GraphicsElements.MAXIMUM_NUMBER_OF_GRID_ROWS);
+			break;
+		case ViewWindow.SIERPINSKI:
+			size = this.graphicsElements
+					.readNumberOfPoints(GraphicsElements.MAXIMUM_NUMBER_OF_CLOUD_POINTS);
+			break;
+		case ViewWindow.SIERPINSKI_DENSITY:
+		case ViewWindow.FERN:
+		case ViewWindow.CARPET:
+		case ViewWindow.GASKET:
+			size = this.graphicsElements
+					.readNumberOfPoints(GraphicsElements.MAXIMUM_NUMBER_OF_DENSITY_POINTS);
+			break;
+		default:
+			// the size of the exact triangle is the size of the window
+			size = 0;
+		}
+		PatternCache.Key key = new PatternCache.Key(kind, size,
+				this.seeds[kind]);
+		PatternCache.Entry entry = this.cache.get(key);
+		if (entry != null) {
+			this.restore(key, entry);
+			return;
+		}
+		this.view.set(new ViewState(kind, size, null, new IndexedRaster(
+				WINDOW_WIDTH, WINDOW_HEIGHT), null, false));
+		this.worker = new PatternWorker(key);
+		this.worker.execute();
+	}
+
+	/**
+	 * Display the pattern received from worker, unless the user has asked for
+	 * another pattern since worker was started
+	 */
+	private void show(PatternWorker worker, Pattern pattern) {
+		if (worker != this.worker || worker.isCancelled())
+			return;
+		// a new pattern, or more points in the same pattern
+		this.view.updateAndGet(view -> view.withPattern(pattern));
+		this.repaint();
+	}
+
+	/**
+	 * Add the complete pattern generated by worker to the cache, with its
+	 * raster, if it is the pattern displayed
+	 */
+	private void remember(PatternWorker worker, Pattern pattern) {
+		if (worker != this.worker || worker.isCancelled())
+			return;
+		ViewState view = this.view.get();
+		if (!view.rasterized) {
+			this.rasterizer.rasterize(pattern, view.raster);
+			this.view.compareAndSet(view, view.withRaster());
+		}
+		this.cache.put(worker.key, pattern, view.raster);
+		this.lastKeys[worker.key.getType()] = worker.key;
+	}
+
+	/**
+	 * Return the cache of the patterns displayed (its statistics are also
+	 * available through PatternMetrics)
+	 */
+	public PatternCache getPatternCache() {
+		return this.cache;
+	}
+
+	/**
+	 * Generate a pattern away from the event thread. The Sierpinski triangles
+	 * made of points are published batch by batch as their points are
+	 * computed, so that they show up (and grow) right away.
+	 */
+	private class PatternWorker extends SwingWorker<Pattern, Pattern> {
+
+		private PatternCache.Key key;
+
+		private int kind;
+
+		private int size;
+
+		PatternWorker(PatternCache.Key key) {
+			this.key = key;
+			this.kind = key.getType();
+			this.size = (int) key.getSize();
+		}
+
+		protected Pattern doInBackground() {
+			PatternEvent event = metrics.begin();
+			long start = metrics.start();
+			long allocated = metrics.allocatedBytes(event);
+			Pattern pattern = this.create();
+			metrics.end(PatternMetrics.GENERATION, start, event,
+					titles[this.kind], this.size, allocated);
+			return pattern;
+		}
+
+		private Pattern create() {
+			switch (this.kind) {
+			case ViewWindow.DISK_PILE:
+				return graphicsElements.createADiskPile(this.size,
+						this.key.getSeed());
+			case ViewWindow.CHECKERED_BOARD:
+				return graphicsElements.createACheckeredBoardGrid(this.size);
+			case ViewWindow.SIERPINSKI_EXACT:
+				return graphicsElements.createAnExactSierpinskiTriangle();
+			case ViewWindow.SIERPINSKI_DENSITY:
+				return graphicsElements.createASierpinskiDensity(this.size,
+						this.key.getSeed(),
+						this.size >= GraphicsElements.DENSITY_SHADING_THRESHOLD,
+						density -> {
+							publish(density);
+							return !isCancelled();
+						});
+			case ViewWindow.FERN:
+			case ViewWindow.CARPET:
+			case ViewWindow.GASKET:
+				return graphicsElements.createAFractalDensity(
+						this.system(), this.size, this.key.getSeed(),
+						density -> {
+							publish(density);
+							return !isCancelled();
+						});
+			default:
+				return graphicsElements.createASierpinskiPointCloud(this.size,
+						this.key.getSeed(), points -> {
+							publish(points);
+							return !isCancelled();
+						});
+			}
+		}
+
+		// the iterated function system of a fractal
+		private IteratedFunctionSystem system() {
+			switch (this.kind) {
+			case ViewWindow.FERN:
+				return IteratedFunctionSystem.fern();
+			case ViewWindow.CARPET:
+				return IteratedFunctionSystem.carpet();
+			default:
+				return IteratedFunctionSystem
+						.gasket(GraphicsElements.GASKET_SIDES);
+			}
+		}
+
+		protected void process(List<Pattern> patterns) {
+			show(this, patterns.get(patterns.size() - 1));
+		}
+
+		protected void done() {
+			if (this.isCancelled())
+				return;
+			try {
+				Pattern pattern = this.get();
+				show(this, pattern);
+				remember(this, pattern);
+			} catch (InterruptedException | ExecutionException e) {
+				JOptionPane.showMessageDialog(ViewWindow.this,
+						"Sorry, the pattern could not be created: "
+								+ e.getCause(), "Error",
+						JOptionPane.ERROR_MESSAGE);
+			}
+		}
+	}
+
 	/** Display this WindowView */
 	public void paintComponent(Graphics gfx) {
 		super.paintComponent(gfx);
 		// If there is nothing to display, stop here
-		if (this.graphicsList == null)
+		ViewState view = this.view.get();
+		if (view.pattern == null)
 			return;
 
-		// Use some graphics2D features (smooth edges)
-		Graphics2D g = (Graphics2D) gfx;
-		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
-				RenderingHints.VALUE_ANTIALIAS_ON);
-		// Display the different graphics elements
-		if (this.which == ViewWindow.DISK_PILE) {
-			// Pile of disks
-			Iterator it = this.graphicsList.iterator();
-			while (it.hasNext()) {
-				Oval circle = (Oval) (it.next());
-				g.setColor(circle.getColor());
-				g.fillOval(circle.getX(), circle.getY(), circle.getWidth(),
-						circle.getHeight());
-			}
-		} else if (this.which == ViewWindow.CHECKERED_BOARD) {
-			// Checkered board
-			Iterator it = this.graphicsList.iterator();
-			while (it.hasNext()) {
-				Rectangle square = (Rectangle) (it.next());
-				g.setColor(square.getColor());
-				g.fillRect(square.getX(), square.getY(), square.getWidth(),
-						square.getHeight());
-			}
-		} else if (this.which == ViewWindow.SIERPINSKI) {
-			// Sierpinski triangle
-			Iterator it = this.graphicsList.iterator();
-			while (it.hasNext()) {
-				Oval circle = (Oval) (it.next());
-				g.setColor(circle.getColor());
-				g.fillOval(circle.getX(), circle.getY(), circle.getWidth(),
-						circle.getHeight());
+		PatternEvent event = this.metrics.begin();
+		long start = this.metrics.start();
+		this.paintPattern(gfx, view);
+		this.metrics.end(PatternMetrics.PAINT, start, event,
+				this.titles[view.which], view.elements);
+	}
+
+	/** Display the pattern of view */
+	private void paintPattern(Graphics gfx, ViewState view) {
+		Pattern pattern = view.pattern;
+		// A checkered board is painted with a single texture fill
+		if (pattern instanceof CheckeredBoard) {
+			((CheckeredBoard) pattern).paint((Graphics2D) gfx);
+			return;
+		}
+
+		// Rasterize the pattern if its content has changed, and display it
+		// with the current colors of its palette (changing the colors only
+		// changes the palette)
+		if (view.zoom != null) {
+			if (this.zoomBufferZoom != view.zoom) {
+				this.rasterizer.rasterize(view.zoom, this.zoomBuffer);
+				this.zoomBufferZoom = view.zoom;
 			}
+			gfx.drawImage(this.zoomBuffer.toImage(view.zoom.getPalette()), 0,
+					0, null);
+			return;
+		}
+		if (!view.rasterized) {
+			this.rasterizer.rasterize(pattern, view.raster);
+			this.view.compareAndSet(view, view.withRaster());
 		}
+		gfx.drawImage(view.raster.toImage(pattern.getPalette()), 0, 0, null);
+	}
+
+	/** Is there something to display for the current pattern? */
+	private boolean hasDisplay() {
+		return this.view.get().pattern != null;
 	}
 
 	/**
@@ -217,6 +675,8 @@ public class ViewWindow extends JPanel implements MouseListener, ActionListener
 	 * trigger a popup menu: check all possibilities
 	 */
 	public void mousePressed(MouseEvent e) {
+		this.dragX = e.getX();
+		this.dragY = e.getY();
 		checkPopup(e);
 	}
 
@@ -234,21 +694,41 @@ public class ViewWindow extends JPanel implements MouseListener, ActionListener
 		if (!e.isPopupTrigger())
 			return;
 		Color c = null;
-		if (this.graphicsList != null) {
-			switch (this.which) {
+		ViewState view = this.view.get();
+		Pattern pattern = view.pattern;
+		if (pattern != null) {
+			PatternEvent event = this.metrics.begin();
+			long start = this.metrics.start();
+			switch (view.which) {
 			case ViewWindow.DISK_PILE:
 				c = this.graphicsElements.getColorInPileOfDisks(e.getX(), e
-						.getY(), this.graphicsList);
+						.getY(), (DiskPile) pattern);
 				break;
 			case ViewWindow.CHECKERED_BOARD:
 				c = this.graphicsElements.getColorInCheckeredBoard(e.getX(), e
-						.getY(), this.graphicsList);
+						.getY(), (CheckeredBoard) pattern);
 				break;
 			case ViewWindow.SIERPINSKI:
+				if (view.zoom != null)
+					c = view.zoom.getColorAt(e.getX(), e.getY());
+				else
+					c = this.graphicsElements.getColorInSierpinskiTriangle(
+							e.getX(), e.getY(), (SierpinskiPoints) pattern);
+				break;
+			case ViewWindow.SIERPINSKI_EXACT:
+				c = this.graphicsElements.getColorInSierpinskiTriangle(
+						e.getX(), e.getY(), (SierpinskiRaster) pattern);
+				break;
+			case ViewWindow.SIERPINSKI_DENSITY:
+			case ViewWindow.FERN:
+			case ViewWindow.CARPET:
+			case ViewWindow.GASKET:
 				c = this.graphicsElements.getColorInSierpinskiTriangle(
-						e.getX(), e.getY(), this.graphicsList);
+						e.getX(), e.getY(), (DensityBuffer) pattern);
 				break;
 			}
+			this.metrics.end(PatternMetrics.HIT_TEST, start, event,
+					this.titles[view.which], view.elements);
 		}
 
 		// Display the color in the label for the popup
@@ -266,10 +746,103 @@ public class ViewWindow extends JPanel implements MouseListener, ActionListener
 	public void mouseEntered(MouseEvent e) {
 	}
 
+	/**
+	 * Zoom the Sierpinski triangle made of points in (wheel up) or out (wheel
+	 * down) around the mouse. Back at zoom level 0, the points are displayed
+	 * again.
+	 */
+	public void mouseWheelMoved(MouseWheelEvent e) {
+		ViewState view = this.view.get();
+		if (view.which != ViewWindow.SIERPINSKI || view.pattern == null)
+			return;
+		SierpinskiZoom zoom = view.zoom;
+		if (zoom == null)
+			zoom = new SierpinskiZoom(WINDOW_WIDTH, WINDOW_HEIGHT,
+					view.pattern::getPalette);
+		zoom = zoom.zoomedAt(e.getX(), e.getY(), -e.getWheelRotation());
+		// back at zoom level 0, display the points again
+		if (zoom.getZoom() == 0)
+			zoom = null;
+		this.view.compareAndSet(view, view.withZoom(zoom));
+		this.repaint();
+	}
+
+	/** Pan the zoomed in Sierpinski triangle with the mouse */
+	public void mouseDragged(MouseEvent e) {
+		ViewState view = this.view.get();
+		if (view.zoom == null)
+			return;
+		this.view.compareAndSet(view, view.withZoom(view.zoom.panned(e.getX()
+				- this.dragX, e.getY() - this.dragY)));
+		this.dragX = e.getX();
+		this.dragY = e.getY();
+		this.repaint();
+	}
+
+	public void mouseMoved(MouseEvent e) {
+	}
+
+	/**
+	 * What the window displays: the kind of pattern (DISK_PILE to GASKET),
+	 * its number of disks, rows or points, the pattern (null until it shows
+	 * up), its raster in palette slots (with whether it is up to date with
+	 * the pattern) and the zoomed in view of the Sierpinski triangle made of
+	 * points (null if the view is not zoomed in).<br>
+	 * The raster is displayed with the current colors of the palette of the
+	 * pattern, so it is rasterized again only when the content of the
+	 * pattern changes (see generate and show). Each pattern has its own
+	 * raster, kept with it in the cache.<br>
+	 * A state never changes, nor does its zoomed in view: a change of what is
+	 * displayed (zooming and panning included) is a new state.
+	 */
+	private static class ViewState {
+
+		private final int which;
+
+		private final long elements;
+
+		private final Pattern pattern;
+
+		private final IndexedRaster raster;
+
+		private final SierpinskiZoom zoom;
+
+		private final boolean rasterized;
+
+		ViewState(int which, long elements, Pattern pattern,
+				IndexedRaster raster, SierpinskiZoom zoom, boolean rasterized) {
+			this.which = which;
+			this.elements = elements;
+			this.pattern = pattern;
+			this.raster = raster;
+			this.zoom = zoom;
+			this.rasterized = rasterized;
+		}
+
+		/** Return this state with pattern, to rasterize again */
+		ViewState withPattern(Pattern pattern) {
+			return new ViewState(this.which, this.elements, pattern,
+					this.raster, this.zoom, false);
+		}
+
+		/** Return this state with its raster up to date */
+		ViewState withRaster() {
+			return new ViewState(this.which, this.elements, this.pattern,
+					this.raster, this.zoom, true);
+		}
+
+		/** Return this state with the zoomed in view zoom (or none if null) */
+		ViewState withZoom(SierpinskiZoom zoom) {
+			return new ViewState(this.which, this.elements, this.pattern,
+					this.raster, zoom, this.rasterized);
+		}
+	}
+
 	/**
 	 * Starts the application
 	 */
 	public static void main(String[] args) {
+		PatternMetrics.register();
 		new ViewWindow();
 	}
 }
\ No newline at end of file